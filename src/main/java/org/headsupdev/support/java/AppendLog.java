@@ -0,0 +1,490 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A long lived, buffered log file writer for high volumes of appends from many threads.
+ * Appends are added to a lock-free queue and return immediately; a single background thread encodes and writes
+ * everything queued whenever the flush threshold or flush interval is reached, so thousands of appends become a
+ * handful of writes. The file can optionally be rolled when it reaches a size or the date changes.
+ *
+ * Appended text is not guaranteed to be on disk until {@link #flush()} or {@link #close()} returns.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class AppendLog
+    implements Closeable, Flushable
+{
+    public static final long DEFAULT_FLUSH_BYTES = 256 * 1024;
+    public static final long DEFAULT_FLUSH_MILLIS = 200;
+    public static final long DEFAULT_MAX_PENDING_BYTES = 64 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private File file;
+    private CharsetEncoder encoder;
+
+    private volatile long flushBytes = DEFAULT_FLUSH_BYTES;
+    private volatile long flushMillis = DEFAULT_FLUSH_MILLIS;
+    private volatile long maxPendingBytes = DEFAULT_MAX_PENDING_BYTES;
+    private volatile long rollBytes;
+    private volatile boolean rollDaily, sync;
+
+    private ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<String>();
+    private AtomicLong pendingChars = new AtomicLong();
+    private AtomicLong appended = new AtomicLong();
+    private volatile long written;
+    private volatile boolean closing, flushRequested;
+    private volatile IOException failure;
+
+    private final Object flushLock = new Object();
+    private Thread writer;
+
+    // only accessed by the writer thread
+    private FileChannel channel;
+    private long fileSize;
+    private LocalDate fileDate;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect( BUFFER_SIZE );
+    private int entryStart;
+    private boolean entrySplit;
+
+    /**
+     * Open a log file for appending and start its writer thread.
+     *
+     * @param file The file to append to, created if it does not exist
+     * @param charset The character set to encode text with
+     * @throws IOException If the file could not be opened
+     */
+    public AppendLog( File file, Charset charset )
+        throws IOException
+    {
+        this.file = file;
+        this.encoder = charset.newEncoder().onMalformedInput( CodingErrorAction.REPLACE )
+                .onUnmappableCharacter( CodingErrorAction.REPLACE );
+        openFile();
+
+        writer = new Thread( new Runnable()
+        {
+            public void run()
+            {
+                writeLoop();
+            }
+        }, "AppendLog " + file.getName() );
+        writer.setDaemon( true );
+        writer.start();
+    }
+
+    /**
+     * Set how much text can be queued before the writer is woken to write it. Defaults to 256K.
+     *
+     * @param bytes The approximate number of bytes to queue before writing
+     * @return this log, for chaining calls
+     */
+    public AppendLog setFlushThreshold( long bytes )
+    {
+        this.flushBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Set the longest time that appended text will wait before being written. Defaults to 200ms.
+     *
+     * @param time The maximum time between writes
+     * @param unit The unit of the time parameter
+     * @return this log, for chaining calls
+     */
+    public AppendLog setFlushInterval( long time, TimeUnit unit )
+    {
+        this.flushMillis = Math.max( 1, unit.toMillis( time ) );
+        return this;
+    }
+
+    /**
+     * Set how much text can be queued before appending threads are held up until the writer catches up.
+     * Defaults to 64MB.
+     *
+     * @param bytes The approximate number of bytes to allow in the queue
+     * @return this log, for chaining calls
+     */
+    public AppendLog setMaxPendingBytes( long bytes )
+    {
+        this.maxPendingBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Set the size at which the file is rolled. Zero, the default, disables rolling by size.
+     * Files are only rolled between appends, so a single append larger than this will be in a file of its own.
+     *
+     * @param bytes The file size that triggers a roll
+     * @return this log, for chaining calls
+     * @see #setRollDaily(boolean)
+     */
+    public AppendLog setRollSize( long bytes )
+    {
+        this.rollBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Set whether the file should be rolled when the first write of a new day occurs.
+     * Rolled files are renamed to <code>name.yyyy-MM-dd.n</code> using the date the file was started.
+     *
+     * @param daily true to roll the file each day
+     * @return this log, for chaining calls
+     */
+    public AppendLog setRollDaily( boolean daily )
+    {
+        this.rollDaily = daily;
+        return this;
+    }
+
+    /**
+     * Set whether each write should be forced to the storage device. Defaults to false.
+     *
+     * @param sync true to sync after every write
+     * @return this log, for chaining calls
+     */
+    public AppendLog setSync( boolean sync )
+    {
+        this.sync = sync;
+        return this;
+    }
+
+    /**
+     * Queue text to be appended to the log. This method does not wait for the text to be written,
+     * unless the writer has fallen behind by more than the maximum pending bytes.
+     *
+     * @param text The text to append
+     * @throws IOException If the log is closed or a previous write failed
+     */
+    public void append( CharSequence text )
+        throws IOException
+    {
+        checkState();
+
+        String value = text.toString();
+        long pending = pendingChars.addAndGet( value.length() );
+        // count before queueing, so a flush can never see our text written before it is counted
+        appended.incrementAndGet();
+        queue.offer( value );
+
+        if ( pending >= flushBytes )
+        {
+            LockSupport.unpark( writer );
+        }
+
+        while ( pendingChars.get() > maxPendingBytes && failure == null && !closing )
+        {
+            LockSupport.unpark( writer );
+            LockSupport.parkNanos( TimeUnit.MICROSECONDS.toNanos( 100 ) );
+        }
+    }
+
+    /**
+     * Queue a line of text, followed by "\n", to be appended to the log.
+     *
+     * @param line The line to append
+     * @throws IOException If the log is closed or a previous write failed
+     */
+    public void appendLine( CharSequence line )
+        throws IOException
+    {
+        append( line + "\n" );
+    }
+
+    /**
+     * Write everything that has been appended so far, waiting until it is written.
+     *
+     * @throws IOException If the log is closed or the write failed
+     */
+    public void flush()
+        throws IOException
+    {
+        checkState();
+        waitForWritten( appended.get() );
+    }
+
+    /**
+     * Write everything that has been appended, stop the writer thread and close the file.
+     *
+     * @throws IOException If the final write failed
+     */
+    public void close()
+        throws IOException
+    {
+        if ( closing )
+        {
+            return;
+        }
+
+        closing = true;
+        LockSupport.unpark( writer );
+        try
+        {
+            writer.join();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted waiting for log to close" );
+        }
+
+        if ( failure != null )
+        {
+            throw failure;
+        }
+    }
+
+    private void checkState()
+        throws IOException
+    {
+        if ( failure != null )
+        {
+            throw new IOException( "Log failed to write: " + file.getPath(), failure );
+        }
+        if ( closing )
+        {
+            throw new IOException( "Log is closed: " + file.getPath() );
+        }
+    }
+
+    private void waitForWritten( long target )
+        throws IOException
+    {
+        synchronized ( flushLock )
+        {
+            while ( written < target )
+            {
+                if ( failure != null )
+                {
+                    throw new IOException( "Log failed to write: " + file.getPath(), failure );
+                }
+                if ( !writer.isAlive() )
+                {
+                    throw new IOException( "Log is closed: " + file.getPath() );
+                }
+
+                flushRequested = true;
+                LockSupport.unpark( writer );
+                try
+                {
+                    flushLock.wait( flushMillis );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException( "Interrupted waiting for log to flush" );
+                }
+            }
+        }
+    }
+
+    private void writeLoop()
+    {
+        try
+        {
+            while ( true )
+            {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( flushMillis );
+                while ( !closing && !flushRequested && pendingChars.get() < flushBytes )
+                {
+                    long remaining = deadline - System.nanoTime();
+                    if ( remaining <= 0 )
+                    {
+                        break;
+                    }
+                    LockSupport.parkNanos( this, remaining );
+                }
+
+                boolean finished = closing;
+                flushRequested = false;
+                writeQueued();
+
+                if ( finished && queue.isEmpty() )
+                {
+                    break;
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            failure = e;
+        }
+        finally
+        {
+            IOUtil.close( channel );
+            synchronized ( flushLock )
+            {
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    private void writeQueued()
+        throws IOException
+    {
+        if ( rollDaily && fileSize > 0 && !LocalDate.now().equals( fileDate ) )
+        {
+            roll();
+        }
+
+        long count = 0;
+        String next;
+        while ( ( next = queue.poll() ) != null )
+        {
+            encode( next );
+            pendingChars.addAndGet( -next.length() );
+            count++;
+        }
+
+        if ( count == 0 )
+        {
+            return;
+        }
+
+        writeBuffer( buffer.position() );
+        if ( sync )
+        {
+            channel.force( false );
+        }
+
+        synchronized ( flushLock )
+        {
+            written += count;
+            flushLock.notifyAll();
+        }
+    }
+
+    private void encode( String text )
+        throws IOException
+    {
+        entryStart = buffer.position();
+        entrySplit = false;
+
+        CharBuffer chars = CharBuffer.wrap( text );
+        encoder.reset();
+        while ( encoder.encode( chars, buffer, true ).isOverflow() )
+        {
+            makeRoom();
+        }
+        while ( encoder.flush( buffer ).isOverflow() )
+        {
+            makeRoom();
+        }
+
+        // roll between entries so that an entry is never split across files
+        if ( !entrySplit && isRollDue() )
+        {
+            writeBuffer( entryStart );
+            roll();
+        }
+    }
+
+    private void makeRoom()
+        throws IOException
+    {
+        if ( entryStart > 0 )
+        {
+            // write the entries before this one, keeping this entry together
+            writeBuffer( entryStart );
+            entryStart = 0;
+            return;
+        }
+
+        // the entry is larger than the buffer so must be written in parts, all to the same file
+        if ( !entrySplit && isRollDue() )
+        {
+            roll();
+        }
+        entrySplit = true;
+        writeBuffer( buffer.position() );
+    }
+
+    private boolean isRollDue()
+    {
+        return rollBytes > 0 && fileSize + entryStart > 0 && fileSize + buffer.position() > rollBytes;
+    }
+
+    /**
+     * Write the start of the buffer, up to end, and move anything after it to the start of the buffer.
+     */
+    private void writeBuffer( int end )
+        throws IOException
+    {
+        int position = buffer.position();
+        buffer.limit( end );
+        buffer.position( 0 );
+        while ( buffer.hasRemaining() )
+        {
+            fileSize += channel.write( buffer );
+        }
+
+        buffer.limit( position );
+        buffer.compact();
+    }
+
+    private void roll()
+        throws IOException
+    {
+        channel.close();
+        int index = 1;
+        File rolled;
+        do
+        {
+            rolled = new File( file.getPath() + "." + fileDate + "." + index++ );
+        }
+        while ( rolled.exists() );
+
+        if ( !file.renameTo( rolled ) )
+        {
+            throw new IOException( "Unable to roll log file to: " + rolled.getPath() );
+        }
+        openFile();
+    }
+
+    private void openFile()
+        throws IOException
+    {
+        channel = FileChannel.open( file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND );
+        fileSize = channel.size();
+        fileDate = LocalDate.now();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Collects resources so they can be closed together, in the reverse of the order they were registered.
+ * Unlike the <code>IOUtil.close</code> methods failures are not lost - every resource is closed and the first failure
+ * is thrown with any later failures attached as suppressed exceptions.
+ * Each failure is also counted in <code>IOUtil.getCloseFailures()</code>.
+ *
+ * <pre>
+ * Closer closer = new Closer();
+ * try
+ * {
+ *     InputStream in = closer.register( new FileInputStream( source ) );
+ *     OutputStream out = closer.register( new FileOutputStream( dest ) );
+ *     IOUtil.copyStream( in, out );
+ * }
+ * finally
+ * {
+ *     closer.close();
+ * }
+ * </pre>
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class Closer
+    implements Closeable
+{
+    private final Deque<Closeable> resources = new ArrayDeque<Closeable>();
+
+    /**
+     * Register a resource to be closed when this closer is closed. Null resources are ignored.
+     *
+     * @param resource The resource to close later
+     * @return The resource passed in, for convenient assignment
+     */
+    public <C extends Closeable> C register( C resource )
+    {
+        if ( resource != null )
+        {
+            synchronized ( resources )
+            {
+                resources.push( resource );
+            }
+        }
+
+        return resource;
+    }
+
+    /**
+     * Close all registered resources, most recently registered first.
+     *
+     * @throws IOException If any of the resources failed to close, with later failures suppressed
+     */
+    public void close()
+        throws IOException
+    {
+        Throwable failure = null;
+        while ( true )
+        {
+            Closeable resource;
+            synchronized ( resources )
+            {
+                resource = resources.poll();
+            }
+            if ( resource == null )
+            {
+                break;
+            }
+
+            try
+            {
+                resource.close();
+            }
+            catch ( Throwable e )
+            {
+                IOUtil.recordCloseFailure( resource );
+                if ( failure == null )
+                {
+                    failure = e;
+                }
+                else if ( failure != e )
+                {
+                    failure.addSuppressed( e );
+                }
+            }
+        }
+
+        if ( failure instanceof IOException )
+        {
+            throw (IOException) failure;
+        }
+        if ( failure instanceof RuntimeException )
+        {
+            throw (RuntimeException) failure;
+        }
+        if ( failure instanceof Error )
+        {
+            throw (Error) failure;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The compression formats supported by the <code>IOUtil</code> compression helpers.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public enum Compression
+{
+    /**
+     * Data is passed through unchanged
+     */
+    NONE,
+
+    /**
+     * The gzip file format, as produced by the gzip command
+     */
+    GZIP,
+
+    /**
+     * The zlib wrapped deflate format, as produced by <code>DeflaterOutputStream</code>
+     */
+    DEFLATE;
+
+    /**
+     * The number of bytes to pass to {@link #detect(byte[], int)}, where the data is long enough
+     */
+    public static final int HEADER_LENGTH = 512;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Detect the compression used by looking for the magic bytes at the start of the data.
+     * A zlib header is only two bytes, and some text starts with bytes that look like one, so deflate data is also
+     * checked by decompressing the header bytes. If fewer than <code>HEADER_LENGTH</code> bytes are passed they are
+     * taken to be all of the data, so must contain a complete deflate stream.
+     *
+     * @param header The first bytes of the data
+     * @param length The number of valid bytes in header
+     * @return The compression detected, or NONE if the data does not look compressed
+     */
+    public static Compression detect( byte[] header, int length )
+    {
+        if ( length < 2 )
+        {
+            return NONE;
+        }
+
+        int first = header[0] & 0xff;
+        int second = header[1] & 0xff;
+        if ( first == 0x1f && second == 0x8b )
+        {
+            return GZIP;
+        }
+
+        // a zlib header for the deflate method with a 32K window, as every common encoder writes, and a check value
+        if ( first == 0x78 && ( first * 256 + second ) % 31 == 0 && isDeflate( header, length ) )
+        {
+            return DEFLATE;
+        }
+
+        return NONE;
+    }
+
+    private static boolean isDeflate( byte[] header, int length )
+    {
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput( header, 0, length );
+            byte[] discard = new byte[4096];
+            while ( !inflater.finished() && !inflater.needsInput() && !inflater.needsDictionary() )
+            {
+                inflater.inflate( discard );
+            }
+
+            // a valid stream that has not finished is only deflate if there is more data to come
+            return inflater.finished() || ( inflater.needsInput() && length >= HEADER_LENGTH );
+        }
+        catch ( DataFormatException e )
+        {
+            return false;
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Wrap an output stream so that data written to it is compressed in this format.
+     * Close the result to complete the compressed data and release the native compressor, this also closes the
+     * passed stream.
+     *
+     * @param out The stream to write compressed data to
+     * @return A stream that compresses to the passed stream
+     * @throws IOException If the compression header could not be written
+     */
+    public OutputStream wrap( OutputStream out )
+        throws IOException
+    {
+        switch ( this )
+        {
+            case GZIP:
+                return new GZIPOutputStream( out, BUFFER_SIZE );
+            case DEFLATE:
+                return new DeflaterOutputStream( out );
+            default:
+                return out;
+        }
+    }
+
+    /**
+     * Wrap an input stream containing data in this format so that reads return the uncompressed data.
+     *
+     * @param in The stream to read compressed data from
+     * @return A stream that decompresses the passed stream
+     * @throws IOException If the compression header could not be read
+     */
+    public InputStream wrap( InputStream in )
+        throws IOException
+    {
+        switch ( this )
+        {
+            case GZIP:
+                return new GZIPInputStream( in, BUFFER_SIZE );
+            case DEFLATE:
+                return new InflaterInputStream( in );
+            default:
+                return in;
+        }
+    }
+}
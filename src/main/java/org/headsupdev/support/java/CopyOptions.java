@@ -0,0 +1,145 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Settings for <code>FileUtil.copyTree</code>. The defaults copy only files whose size or modification time differ
+ * from the destination, keeping existing extra files in the destination.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class CopyOptions
+{
+    /**
+     * How to decide if a file already in the destination is up to date
+     */
+    public enum Comparison
+    {
+        /**
+         * Always copy, replacing any existing file
+         */
+        ALWAYS,
+
+        /**
+         * Skip files with the same size and modification time
+         */
+        SIZE_AND_TIME,
+
+        /**
+         * Skip files with the same size and identical content, reading both files to compare
+         */
+        CONTENT
+    }
+
+    private Comparison comparison = Comparison.SIZE_AND_TIME;
+    private boolean preserveAttributes, deleteExtraneous, verifyContent;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    public Comparison getComparison()
+    {
+        return comparison;
+    }
+
+    /**
+     * Set how to check if a destination file is already up to date. Defaults to <code>SIZE_AND_TIME</code>.
+     *
+     * @param comparison The comparison to use
+     * @return these options, for chaining calls
+     */
+    public CopyOptions setComparison( Comparison comparison )
+    {
+        this.comparison = comparison;
+        return this;
+    }
+
+    public boolean isPreserveAttributes()
+    {
+        return preserveAttributes;
+    }
+
+    /**
+     * Set whether file permissions and directory modification times are copied. File modification times are
+     * always copied so that later copies can skip unchanged files.
+     *
+     * @param preserveAttributes true to copy attributes as well as content
+     * @return these options, for chaining calls
+     */
+    public CopyOptions setPreserveAttributes( boolean preserveAttributes )
+    {
+        this.preserveAttributes = preserveAttributes;
+        return this;
+    }
+
+    public boolean isDeleteExtraneous()
+    {
+        return deleteExtraneous;
+    }
+
+    /**
+     * Set whether files in the destination that are not in the source should be deleted, making the destination
+     * an exact mirror of the source. This also allows a destination directory to be deleted where the source has
+     * a file or link of the same name, otherwise that path fails to copy.
+     *
+     * @param deleteExtraneous true to delete files that are not in the source
+     * @return these options, for chaining calls
+     */
+    public CopyOptions setDeleteExtraneous( boolean deleteExtraneous )
+    {
+        this.deleteExtraneous = deleteExtraneous;
+        return this;
+    }
+
+    public boolean isVerifyContent()
+    {
+        return verifyContent;
+    }
+
+    /**
+     * Set whether each copied file is read back and compared with the source, failing the copy of any file whose
+     * content does not match - for example because the source changed whilst it was copied.
+     *
+     * @param verifyContent true to check the content of every file copied
+     * @return these options, for chaining calls
+     */
+    public CopyOptions setVerifyContent( boolean verifyContent )
+    {
+        this.verifyContent = verifyContent;
+        return this;
+    }
+
+    public ForkJoinPool getPool()
+    {
+        return pool;
+    }
+
+    /**
+     * Set the pool that copy tasks run on. Defaults to the common fork/join pool.
+     *
+     * @param pool The pool to copy with
+     * @return these options, for chaining calls
+     */
+    public CopyOptions setPool( ForkJoinPool pool )
+    {
+        this.pool = pool;
+        return this;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+/**
+ * A summary of the work done by <code>FileUtil.copyTree</code>.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class CopyResult
+{
+    private long copied, skipped, bytes, deleted;
+
+    CopyResult( long copied, long skipped, long bytes, long deleted )
+    {
+        this.copied = copied;
+        this.skipped = skipped;
+        this.bytes = bytes;
+        this.deleted = deleted;
+    }
+
+    /**
+     * @return The number of files, including symbolic links, that were copied
+     */
+    public long getCopiedCount()
+    {
+        return copied;
+    }
+
+    /**
+     * @return The number of files that were already up to date in the destination
+     */
+    public long getSkippedCount()
+    {
+        return skipped;
+    }
+
+    /**
+     * @return The total size of the files that were copied
+     */
+    public long getByteCount()
+    {
+        return bytes;
+    }
+
+    /**
+     * @return The number of extraneous files and directories deleted from the destination
+     */
+    public long getDeletedCount()
+    {
+        return deleted;
+    }
+
+    public String toString()
+    {
+        return "Copied " + copied + " files (" + bytes + " bytes), skipped " + skipped + ", deleted " + deleted;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+/**
+ * A summary of what was removed by <code>FileUtil.deleteTree</code>.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class DeleteResult
+{
+    private long files, directories, bytes;
+
+    DeleteResult( long files, long directories, long bytes )
+    {
+        this.files = files;
+        this.directories = directories;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return The number of files, including symbolic links, that were deleted
+     */
+    public long getFileCount()
+    {
+        return files;
+    }
+
+    /**
+     * @return The number of directories that were deleted
+     */
+    public long getDirectoryCount()
+    {
+        return directories;
+    }
+
+    /**
+     * @return The total size of the files that were deleted
+     */
+    public long getByteCount()
+    {
+        return bytes;
+    }
+
+    public String toString()
+    {
+        return "Deleted " + files + " files (" + bytes + " bytes) in " + directories + " directories";
+    }
+}
@@ -0,0 +1,652 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local cache of downloaded URLs. Content is stored once per unique SHA-256 digest, however many URLs serve it,
+ * and an index records the digest and HTTP validators for each URL. Cached URLs are revalidated with a conditional
+ * GET (If-None-Match / If-Modified-Since) so unchanged content is not transferred again. Concurrent requests for the
+ * same URL share a single transfer and the least recently used entries are evicted to keep the cache within its
+ * size limit.
+ *
+ * Files returned by {@link #get(URL)} remain valid only until they are evicted, which can happen at any moment as
+ * other threads add content. Callers that need to read the content should use {@link #openStream(URL)}, or
+ * {@link #downloadToFile(URL, File)} to take a copy.
+ *
+ * Changes to the index are appended to it as they happen and the index is only rewritten, dropping replaced and
+ * removed entries, once it has grown to several times the size of the cache contents.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class DownloadCache
+{
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+    private static final String INDEX_NAME = "index";
+    private static final String OBJECTS_NAME = "objects";
+    private static final String REMOVED = "-";
+    private static final int OPEN_ATTEMPTS = 3;
+    private static final int MIN_COMPACT_LINES = 64;
+
+    private File directory, objects, indexFile;
+    private long maxBytes;
+    private volatile long maxAgeMillis;
+
+    // access ordered, so iteration starts with the least recently used entry
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<String, Entry>( 16, 0.75f, true );
+    private final Map<String, Integer> references = new HashMap<String, Integer>();
+    private long totalBytes;
+    private int indexLines;
+
+    private ConcurrentHashMap<String, CompletableFuture<File>> inFlight =
+            new ConcurrentHashMap<String, CompletableFuture<File>>();
+
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+    private LongAdder revalidations = new LongAdder();
+    private LongAdder evictions = new LongAdder();
+    private LongAdder bytesDownloaded = new LongAdder();
+
+    /**
+     * Open a cache in the given directory, loading any existing index.
+     *
+     * @param directory The directory to store cached content and the index in
+     * @param maxBytes The maximum size of cached content before the least recently used entries are evicted
+     * @throws IOException If the directory could not be created or the index could not be read
+     */
+    public DownloadCache( File directory, long maxBytes )
+        throws IOException
+    {
+        this.directory = directory;
+        this.objects = new File( directory, OBJECTS_NAME );
+        this.indexFile = new File( directory, INDEX_NAME );
+        this.maxBytes = maxBytes;
+
+        FileUtil.mkdirs( objects );
+        loadIndex();
+    }
+
+    /**
+     * Set how long content can be used without revalidating it with the server. Defaults to zero, meaning every
+     * request is revalidated.
+     *
+     * @param time The time that fetched content is considered fresh
+     * @param unit The unit of the time parameter
+     * @return this cache, for chaining calls
+     */
+    public DownloadCache setMaxAge( long time, TimeUnit unit )
+    {
+        this.maxAgeMillis = unit.toMillis( time );
+        return this;
+    }
+
+    /**
+     * Download the content of a URL into a file, using the cached content if it is still current.
+     *
+     * @param url The url to download from
+     * @param file The file to write into
+     * @throws IOException If the content could not be fetched or copied into the file
+     */
+    public void downloadToFile( URL url, File file )
+        throws IOException
+    {
+        try ( InputStream in = openStream( url ) )
+        {
+            Files.copy( in, file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+    }
+
+    /**
+     * Open the current content of a URL for reading, fetching it only if it is not cached or has changed.
+     * The stream can be read to the end even if the content is evicted whilst it is open.
+     *
+     * @param url The url to read
+     * @return A stream of the content, which the caller must close
+     * @throws IOException If the content could not be fetched or opened
+     */
+    public InputStream openStream( URL url )
+        throws IOException
+    {
+        for ( int attempt = 0; attempt < OPEN_ATTEMPTS; attempt++ )
+        {
+            File object = get( url );
+            // objects are only deleted holding the index lock, and an open file can still be read once deleted
+            synchronized ( index )
+            {
+                if ( object.exists() )
+                {
+                    return Files.newInputStream( object.toPath() );
+                }
+            }
+        }
+
+        throw new IOException( "Content of " + url + " was evicted before it could be read" );
+    }
+
+    /**
+     * Get a local file containing the current content of a URL, fetching it only if it is not cached or has changed.
+     *
+     * @param url The url to fetch
+     * @return A file in the cache holding the content - this must not be modified
+     * @throws IOException If the content could not be fetched
+     */
+    public File get( URL url )
+        throws IOException
+    {
+        String key = url.toExternalForm();
+        CompletableFuture<File> created = new CompletableFuture<File>();
+        CompletableFuture<File> existing = inFlight.putIfAbsent( key, created );
+        if ( existing != null )
+        {
+            return await( existing );
+        }
+
+        try
+        {
+            File ret = fetch( url, key );
+            created.complete( ret );
+            return ret;
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            created.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            inFlight.remove( key, created );
+        }
+    }
+
+    private File fetch( URL url, String key )
+        throws IOException
+    {
+        Entry entry;
+        synchronized ( index )
+        {
+            entry = index.get( key );
+        }
+
+        if ( entry != null && System.currentTimeMillis() - entry.fetched < maxAgeMillis )
+        {
+            File cached = objectFile( entry.digest );
+            if ( cached.exists() )
+            {
+                hits.increment();
+                touch( key, entry );
+                return cached;
+            }
+        }
+        if ( entry != null && !objectFile( entry.digest ).exists() )
+        {
+            // the content was removed outside of the cache, so we cannot revalidate it
+            dropEntry( key, entry );
+            entry = null;
+        }
+
+        URLConnection connection = url.openConnection();
+        try
+        {
+            if ( entry != null && connection instanceof HttpURLConnection )
+            {
+                if ( entry.etag != null )
+                {
+                    connection.setRequestProperty( "If-None-Match", entry.etag );
+                }
+                if ( entry.lastModified != null )
+                {
+                    connection.setRequestProperty( "If-Modified-Since", entry.lastModified );
+                }
+            }
+
+            if ( connection instanceof HttpURLConnection )
+            {
+                int status = ( (HttpURLConnection) connection ).getResponseCode();
+                if ( status == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null )
+                {
+                    if ( !objectFile( entry.digest ).exists() )
+                    {
+                        // removed whilst we were revalidating, fetch it again without the validators
+                        dropEntry( key, entry );
+                        return fetch( url, key );
+                    }
+
+                    hits.increment();
+                    revalidations.increment();
+                    entry.fetched = System.currentTimeMillis();
+                    touch( key, entry );
+                    return objectFile( entry.digest );
+                }
+                if ( status != HttpURLConnection.HTTP_OK )
+                {
+                    throw new IOException( "Unexpected response " + status + " fetching " + url );
+                }
+            }
+
+            misses.increment();
+            Entry fetched = new Entry();
+            fetched.etag = connection.getHeaderField( "ETag" );
+            fetched.lastModified = connection.getHeaderField( "Last-Modified" );
+            fetched.fetched = System.currentTimeMillis();
+            fetched.accessed = fetched.fetched;
+
+            File temp = File.createTempFile( "download", ".tmp", directory );
+            try
+            {
+                store( connection, fetched, temp );
+                return add( key, fetched, temp );
+            }
+            finally
+            {
+                Files.deleteIfExists( temp.toPath() );
+            }
+        }
+        finally
+        {
+            if ( connection instanceof HttpURLConnection )
+            {
+                ( (HttpURLConnection) connection ).disconnect();
+            }
+        }
+    }
+
+    private void store( URLConnection connection, Entry entry, File temp )
+        throws IOException
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance( "SHA-256" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IOException( "SHA-256 digest not available", e );
+        }
+
+        try ( InputStream in = connection.getInputStream();
+              OutputStream out = Files.newOutputStream( temp.toPath() ) )
+        {
+            entry.size = new StreamTee().addOutput( out ).addDigest( digest ).copy( in );
+        }
+        bytesDownloaded.add( entry.size );
+        entry.digest = toHex( digest.digest() );
+    }
+
+    private File add( String key, Entry entry, File temp )
+        throws IOException
+    {
+        File object = objectFile( entry.digest );
+        synchronized ( index )
+        {
+            // the content may already be cached for another url
+            if ( !object.exists() )
+            {
+                Files.move( temp.toPath(), object.toPath(), StandardCopyOption.ATOMIC_MOVE );
+            }
+
+            retain( entry.digest, entry.size );
+            Entry previous = index.put( key, entry );
+            if ( previous != null )
+            {
+                release( previous.digest, previous.size );
+            }
+            StringBuilder changes = new StringBuilder();
+            appendLine( changes, key, entry );
+
+            Iterator<Map.Entry<String, Entry>> oldest = index.entrySet().iterator();
+            while ( totalBytes > maxBytes && oldest.hasNext() )
+            {
+                Map.Entry<String, Entry> next = oldest.next();
+                if ( next.getValue() == entry )
+                {
+                    continue;
+                }
+
+                oldest.remove();
+                release( next.getValue().digest, next.getValue().size );
+                evictions.increment();
+                appendRemoved( changes, next.getKey() );
+            }
+
+            logChanges( changes );
+        }
+
+        return object;
+    }
+
+    private void dropEntry( String key, Entry entry )
+        throws IOException
+    {
+        synchronized ( index )
+        {
+            if ( index.get( key ) == entry )
+            {
+                index.remove( key );
+                release( entry.digest, entry.size );
+
+                StringBuilder changes = new StringBuilder();
+                appendRemoved( changes, key );
+                logChanges( changes );
+            }
+        }
+    }
+
+    private void touch( String key, Entry entry )
+    {
+        synchronized ( index )
+        {
+            entry.accessed = System.currentTimeMillis();
+            // a get on an access ordered map moves the entry to the most recently used position
+            index.get( key );
+        }
+    }
+
+    private void retain( String digest, long size )
+    {
+        Integer count = references.get( digest );
+        if ( count == null )
+        {
+            references.put( digest, 1 );
+            totalBytes += size;
+        }
+        else
+        {
+            references.put( digest, count + 1 );
+        }
+    }
+
+    private void release( String digest, long size )
+    {
+        Integer count = references.get( digest );
+        if ( count == null )
+        {
+            return;
+        }
+
+        if ( count > 1 )
+        {
+            references.put( digest, count - 1 );
+            return;
+        }
+
+        references.remove( digest );
+        totalBytes -= size;
+        objectFile( digest ).delete();
+    }
+
+    private File objectFile( String digest )
+    {
+        return new File( objects, digest );
+    }
+
+    private void loadIndex()
+        throws IOException
+    {
+        if ( !indexFile.exists() )
+        {
+            return;
+        }
+
+        // later lines replace or remove the entries of earlier ones
+        final Map<String, String[]> latest = new HashMap<String, String[]>();
+        IOUtil.forEachLine( Files.newInputStream( indexFile.toPath() ), UTF8, new LineHandler()
+        {
+            public void handleLine( CharSequence line )
+            {
+                indexLines++;
+                String[] fields = line.toString().split( "\t", -1 );
+                if ( fields.length == 2 && REMOVED.equals( fields[1] ) )
+                {
+                    latest.remove( fields[0] );
+                }
+                else if ( fields.length == 7 && isNumeric( fields[2] ) && isNumeric( fields[3] ) &&
+                        isNumeric( fields[4] ) )
+                {
+                    latest.put( fields[0], fields );
+                }
+            }
+        } );
+
+        Map<Long, String[]> byAccess = new TreeMap<Long, String[]>();
+        for ( String[] fields : latest.values() )
+        {
+            long accessed = Long.parseLong( fields[3] );
+            while ( byAccess.containsKey( accessed ) )
+            {
+                accessed++;
+            }
+            byAccess.put( accessed, fields );
+        }
+
+        synchronized ( index )
+        {
+            for ( String[] fields : byAccess.values() )
+            {
+                Entry entry = new Entry();
+                entry.digest = fields[1];
+                entry.size = Long.parseLong( fields[2] );
+                entry.accessed = Long.parseLong( fields[3] );
+                entry.fetched = Long.parseLong( fields[4] );
+                entry.etag = fields[5].isEmpty() ? null : fields[5];
+                entry.lastModified = fields[6].isEmpty() ? null : fields[6];
+                if ( objectFile( entry.digest ).exists() )
+                {
+                    index.put( fields[0], entry );
+                    retain( entry.digest, entry.size );
+                }
+            }
+        }
+    }
+
+    private static boolean isNumeric( String field )
+    {
+        if ( field.isEmpty() )
+        {
+            return false;
+        }
+        for ( int i = 0; i < field.length(); i++ )
+        {
+            if ( !Character.isDigit( field.charAt( i ) ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Append changes to the index, called holding the index lock. A crash can lose the last changes, which only
+     * means that content is fetched again, so they are not synced. Once the appended lines far outnumber the
+     * entries the index is rewritten.
+     */
+    private void logChanges( StringBuilder changes )
+        throws IOException
+    {
+        if ( indexLines > Math.max( MIN_COMPACT_LINES, index.size() * 4 ) )
+        {
+            saveIndex();
+            return;
+        }
+
+        FileUtil.writeToFile( changes.toString(), indexFile, UTF8, WriteOption.APPEND );
+        for ( int i = 0; i < changes.length(); i++ )
+        {
+            if ( changes.charAt( i ) == '\n' )
+            {
+                indexLines++;
+            }
+        }
+    }
+
+    private void saveIndex()
+        throws IOException
+    {
+        StringBuilder out = new StringBuilder();
+        for ( Map.Entry<String, Entry> next : index.entrySet() )
+        {
+            appendLine( out, next.getKey(), next.getValue() );
+        }
+
+        FileUtil.writeToFile( out.toString(), indexFile, UTF8, WriteOption.ATOMIC );
+        indexLines = index.size();
+    }
+
+    private static void appendLine( StringBuilder out, String key, Entry entry )
+    {
+        out.append( key ).append( '\t' ).append( entry.digest ).append( '\t' ).append( entry.size )
+                .append( '\t' ).append( entry.accessed ).append( '\t' ).append( entry.fetched ).append( '\t' )
+                .append( entry.etag == null ? "" : entry.etag ).append( '\t' )
+                .append( entry.lastModified == null ? "" : entry.lastModified ).append( '\n' );
+    }
+
+    private static void appendRemoved( StringBuilder out, String key )
+    {
+        out.append( key ).append( '\t' ).append( REMOVED ).append( '\n' );
+    }
+
+    /**
+     * Rewrite the index, including the latest access times, to disk. Added and removed content is appended to the
+     * index as it changes.
+     *
+     * @throws IOException If the index could not be written
+     */
+    public void flush()
+        throws IOException
+    {
+        synchronized ( index )
+        {
+            saveIndex();
+        }
+    }
+
+    private static File await( CompletableFuture<File> future )
+        throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted waiting for download" );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof IOException )
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException( "Download failed", e.getCause() );
+        }
+    }
+
+    private static String toHex( byte[] bytes )
+    {
+        StringBuilder ret = new StringBuilder( bytes.length * 2 );
+        for ( byte b : bytes )
+        {
+            ret.append( Character.forDigit( ( b >> 4 ) & 0xf, 16 ) ).append( Character.forDigit( b & 0xf, 16 ) );
+        }
+
+        return ret.toString();
+    }
+
+    /**
+     * @return The number of requests served from the cache, including those revalidated with the server
+     */
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of requests that transferred content from the server
+     */
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of hits that were confirmed by a "not modified" response from the server
+     */
+    public long getRevalidationCount()
+    {
+        return revalidations.sum();
+    }
+
+    /**
+     * @return The number of entries removed to keep the cache within its size limit
+     */
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The total number of bytes transferred from servers
+     */
+    public long getBytesDownloaded()
+    {
+        return bytesDownloaded.sum();
+    }
+
+    /**
+     * @return The total size of the unique content currently cached
+     */
+    public long getSize()
+    {
+        synchronized ( index )
+        {
+            return totalBytes;
+        }
+    }
+
+    static class Entry
+    {
+        String digest, etag, lastModified;
+        long size, accessed, fetched;
+    }
+}
@@ -0,0 +1,600 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Downloads a URL to a file, resuming partial downloads and splitting large HTTP downloads into ranges that are
+ * fetched in parallel. The size and validator of the resource are read from the response to the first request, so
+ * small downloads only need a single request.
+ *
+ * Large downloads are written to a ".part" file next to the target, with progress recorded in a ".part.progress"
+ * file, and the part file is atomically renamed over the target once complete. These are left behind if the download
+ * fails so that the next attempt can resume it, which it only does if the server reports the same length and
+ * validator (ETag or Last-Modified) as when it was started. Only one download at a time uses a part file, others for
+ * the same target download over a single connection.
+ *
+ * Small downloads, servers that do not support ranges, and URLs that are not HTTP, are downloaded over a single
+ * connection into a uniquely named temporary file that is removed if the download fails.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+class Downloader
+{
+    static final String PART_SUFFIX = ".part";
+    static final String PROGRESS_SUFFIX = ".progress";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+    private static final long PROGRESS_INTERVAL = 8 * 1024 * 1024;
+    private static final int SEGMENT_RETRIES = 3;
+    private static final long RETRY_DELAY_MILLIS = 100;
+
+    // part files being written by this JVM, file locks only keep other processes out
+    private static final Set<String> PARTS_IN_USE = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+
+    private int connections;
+
+    public Downloader( int connections )
+    {
+        if ( connections <= 0 )
+        {
+            throw new IllegalArgumentException( "Connection count must be positive" );
+        }
+
+        this.connections = connections;
+    }
+
+    public void download( URL url, File file )
+        throws IOException
+    {
+        if ( !url.getProtocol().startsWith( "http" ) )
+        {
+            streamToFile( url.openStream(), file );
+            return;
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try
+        {
+            int status = connection.getResponseCode();
+            if ( status != HttpURLConnection.HTTP_OK )
+            {
+                throw new IOException( "Server returned " + status + " for " + url );
+            }
+
+            RemoteInfo info = readInfo( connection );
+            if ( !info.acceptsRanges || info.length <= 0 || segmentCount( info.length ) < 2 )
+            {
+                streamToFile( connection.getInputStream(), file );
+            }
+            else
+            {
+                downloadResumable( url, file, info, connection );
+            }
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
+    private void downloadResumable( URL url, File file, RemoteInfo info, HttpURLConnection connection )
+        throws IOException
+    {
+        File part = new File( file.getPath() + PART_SUFFIX );
+        File progressFile = new File( part.getPath() + PROGRESS_SUFFIX );
+        String key = part.getAbsolutePath();
+        if ( !PARTS_IN_USE.add( key ) )
+        {
+            streamToFile( connection.getInputStream(), file );
+            return;
+        }
+
+        try
+        {
+            boolean existed = part.exists();
+            // all writes go through this channel, closing any other channel on the file would drop our lock
+            try ( FileChannel channel = FileChannel.open( part.toPath(), StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE ) )
+            {
+                if ( channel.tryLock() == null )
+                {
+                    streamToFile( connection.getInputStream(), file );
+                    return;
+                }
+
+                Progress progress = Progress.load( progressFile, info );
+                if ( progress == null || !existed )
+                {
+                    channel.truncate( 0 );
+                    progress = Progress.create( progressFile, info, segmentCount( info.length ) );
+                }
+
+                try
+                {
+                    downloadSegments( url, channel, info, progress, connection.getInputStream() );
+                }
+                catch ( ResourceChangedException e )
+                {
+                    // the resource changed under us, so start again with a single connection
+                    progressFile.delete();
+                    part.delete();
+                    streamToFile( url.openStream(), file );
+                    return;
+                }
+
+                // moved whilst still locked, so nobody else can start writing to it
+                move( part, file );
+                progressFile.delete();
+            }
+        }
+        finally
+        {
+            PARTS_IN_USE.remove( key );
+        }
+    }
+
+    private int segmentCount( long length )
+    {
+        return (int) Math.max( 1, Math.min( connections, length / MIN_SEGMENT_SIZE ) );
+    }
+
+    private static void streamToFile( InputStream in, File file )
+        throws IOException
+    {
+        File temp = File.createTempFile( "." + file.getName() + "-", PART_SUFFIX,
+                file.getAbsoluteFile().getParentFile() );
+        OutputStream out = null;
+        try
+        {
+            out = new FileOutputStream( temp );
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ( ( read = in.read( buffer ) ) > -1 )
+            {
+                out.write( buffer, 0, read );
+            }
+            out.close();
+
+            move( temp, file );
+        }
+        finally
+        {
+            IOUtil.close( in );
+            IOUtil.closeAll( out );
+            temp.delete();
+        }
+    }
+
+    private static void move( File from, File to )
+        throws IOException
+    {
+        try
+        {
+            Files.move( from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING );
+        }
+        catch ( AtomicMoveNotSupportedException e )
+        {
+            Files.move( from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+    }
+
+    private static RemoteInfo readInfo( HttpURLConnection connection )
+    {
+        RemoteInfo info = new RemoteInfo();
+        info.length = connection.getContentLengthLong();
+        info.acceptsRanges = "bytes".equalsIgnoreCase( connection.getHeaderField( "Accept-Ranges" ) );
+        info.validatorHeader = "ETag";
+        info.validator = connection.getHeaderField( "ETag" );
+        if ( info.validator == null || info.validator.startsWith( "W/" ) )
+        {
+            // weak validators cannot be used for ranges
+            info.validatorHeader = "Last-Modified";
+            info.validator = connection.getHeaderField( "Last-Modified" );
+        }
+        return info;
+    }
+
+    /**
+     * Download the incomplete segments in parallel. The first segment is read from the start of the full response
+     * we already have, if it has not been started, rather than making another request.
+     */
+    private void downloadSegments( final URL url, final FileChannel channel, final RemoteInfo info,
+                                   final Progress progress, final InputStream initial )
+        throws IOException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool( progress.segments.size(), new ThreadFactory()
+        {
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "Downloader segment" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+        try
+        {
+            final Segment first = progress.segments.get( 0 );
+            if ( first.position != 0 )
+            {
+                // not needed, and the server would otherwise keep sending it
+                IOUtil.close( initial );
+            }
+
+            List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for ( final Segment segment : progress.segments )
+            {
+                if ( segment.isComplete() )
+                {
+                    continue;
+                }
+
+                results.add( pool.submit( new Callable<Void>()
+                {
+                    public Void call()
+                        throws IOException
+                    {
+                        if ( segment == first && segment.position == 0 )
+                        {
+                            try
+                            {
+                                copySegment( initial, channel, segment, progress );
+                            }
+                            catch ( IOException e )
+                            {
+                                // carry on from where it got to with range requests
+                            }
+                            finally
+                            {
+                                IOUtil.close( initial );
+                            }
+                        }
+                        downloadSegment( url, channel, info, segment, progress );
+                        return null;
+                    }
+                } ) );
+            }
+
+            IOException failure = null;
+            for ( Future<Void> result : results )
+            {
+                try
+                {
+                    result.get();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    failure = new InterruptedIOException( "Interrupted waiting for download" );
+                    break;
+                }
+                catch ( ExecutionException e )
+                {
+                    if ( e.getCause() instanceof ResourceChangedException )
+                    {
+                        throw (ResourceChangedException) e.getCause();
+                    }
+                    if ( failure == null )
+                    {
+                        failure = e.getCause() instanceof IOException ? (IOException) e.getCause() :
+                                new IOException( "Failed to download " + url, e.getCause() );
+                    }
+                }
+            }
+
+            channel.force( false );
+            for ( Segment segment : progress.segments )
+            {
+                segment.durable = segment.position;
+            }
+            progress.save();
+            if ( failure != null )
+            {
+                throw failure;
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void downloadSegment( URL url, FileChannel channel, RemoteInfo info, Segment segment,
+                                         Progress progress )
+        throws IOException
+    {
+        IOException last = null;
+        for ( int attempt = 0; attempt <= SEGMENT_RETRIES && !segment.isComplete(); attempt++ )
+        {
+            if ( attempt > 0 )
+            {
+                try
+                {
+                    // give a busy or restarting server a moment before asking again
+                    Thread.sleep( RETRY_DELAY_MILLIS * attempt );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException( "Interrupted waiting to retry download" );
+                }
+            }
+
+            try
+            {
+                fetchRange( url, channel, info, segment, progress );
+                last = null;
+            }
+            catch ( ResourceChangedException e )
+            {
+                throw e;
+            }
+            catch ( IOException e )
+            {
+                last = e;
+            }
+        }
+
+        if ( last != null )
+        {
+            throw last;
+        }
+    }
+
+    private static void fetchRange( URL url, FileChannel channel, RemoteInfo info, Segment segment,
+                                    Progress progress )
+        throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try
+        {
+            connection.setRequestProperty( "Range", "bytes=" + segment.position + "-" + ( segment.end - 1 ) );
+            if ( info.validator != null )
+            {
+                connection.setRequestProperty( "If-Range", info.validator );
+            }
+            int status = connection.getResponseCode();
+            if ( status == HttpURLConnection.HTTP_OK || status == 416 )
+            {
+                // If-Range sends the whole resource when the validator no longer matches
+                throw new ResourceChangedException( "Server did not return the requested range of " + url );
+            }
+            if ( status != HttpURLConnection.HTTP_PARTIAL )
+            {
+                // busy or failing servers are retried, the resource has not changed
+                throw new IOException( "Server returned " + status + " for a range of " + url );
+            }
+            String validator = connection.getHeaderField( info.validatorHeader );
+            if ( validator != null && info.validator != null && !validator.equals( info.validator ) )
+            {
+                throw new ResourceChangedException( "Resource changed during download of " + url );
+            }
+
+            try ( InputStream in = connection.getInputStream() )
+            {
+                copySegment( in, channel, segment, progress );
+            }
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Copy the rest of a segment from a stream that is positioned at the segment's current position.
+     */
+    private static void copySegment( InputStream in, FileChannel channel, Segment segment, Progress progress )
+        throws IOException
+    {
+        byte[] bytes = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap( bytes );
+        long sinceSave = 0;
+        int read;
+        while ( !segment.isComplete() &&
+                ( read = in.read( bytes, 0, (int) Math.min( bytes.length, segment.remaining() ) ) ) > -1 )
+        {
+            buffer.clear().limit( read );
+            long position = segment.position;
+            while ( buffer.hasRemaining() )
+            {
+                position += channel.write( buffer, position );
+            }
+            segment.position = position;
+
+            sinceSave += read;
+            if ( sinceSave >= PROGRESS_INTERVAL )
+            {
+                // only record progress for data that is safely on disk, other segments record their own
+                channel.force( false );
+                segment.durable = position;
+                progress.save();
+                sinceSave = 0;
+            }
+        }
+
+        if ( !segment.isComplete() )
+        {
+            throw new IOException( "Connection closed before the segment was complete" );
+        }
+    }
+
+    static class RemoteInfo
+    {
+        long length;
+        boolean acceptsRanges;
+        String validator, validatorHeader;
+    }
+
+    static class Segment
+    {
+        long start, end;
+        volatile long position;
+        // how far the data has been forced to disk, the only position that is saved
+        volatile long durable;
+
+        Segment( long start, long position, long end )
+        {
+            this.start = start;
+            this.position = position;
+            this.durable = position;
+            this.end = end;
+        }
+
+        boolean isComplete()
+        {
+            return position >= end;
+        }
+
+        long remaining()
+        {
+            return end - position;
+        }
+    }
+
+    /**
+     * The segments of a download and how far each has got, persisted so that a failed download can be resumed.
+     */
+    static class Progress
+    {
+        private File file;
+        private RemoteInfo info;
+        private List<Segment> segments = new ArrayList<Segment>();
+
+        static Progress create( File file, RemoteInfo info, int count )
+            throws IOException
+        {
+            Progress progress = new Progress();
+            progress.file = file;
+            progress.info = info;
+
+            long size = info.length / count;
+            for ( int i = 0; i < count; i++ )
+            {
+                long start = i * size;
+                long end = i == count - 1 ? info.length : start + size;
+                progress.segments.add( new Segment( start, start, end ) );
+            }
+            progress.save();
+            return progress;
+        }
+
+        static Progress load( File file, RemoteInfo info )
+        {
+            if ( !file.exists() || info.validator == null )
+            {
+                return null;
+            }
+
+            Properties properties = new Properties();
+            try ( InputStream in = new FileInputStream( file ) )
+            {
+                properties.load( in );
+
+                if ( !String.valueOf( info.length ).equals( properties.getProperty( "length" ) ) ||
+                        !info.validator.equals( properties.getProperty( "validator" ) ) )
+                {
+                    return null;
+                }
+
+                Progress progress = new Progress();
+                progress.file = file;
+                progress.info = info;
+                int count = Integer.parseInt( properties.getProperty( "segments" ) );
+                for ( int i = 0; i < count; i++ )
+                {
+                    String[] values = properties.getProperty( "segment." + i ).split( "," );
+                    progress.segments.add( new Segment( Long.parseLong( values[0] ), Long.parseLong( values[1] ),
+                            Long.parseLong( values[2] ) ) );
+                }
+                return progress;
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                // a damaged progress file just means we start again
+                return null;
+            }
+        }
+
+        synchronized void save()
+            throws IOException
+        {
+            Properties properties = new Properties();
+            properties.setProperty( "length", String.valueOf( info.length ) );
+            if ( info.validator != null )
+            {
+                properties.setProperty( "validator", info.validator );
+            }
+            properties.setProperty( "segments", String.valueOf( segments.size() ) );
+            for ( int i = 0; i < segments.size(); i++ )
+            {
+                Segment segment = segments.get( i );
+                properties.setProperty( "segment." + i, segment.start + "," + segment.durable + "," + segment.end );
+            }
+
+            try ( OutputStream out = new FileOutputStream( file ) )
+            {
+                properties.store( out, null );
+            }
+        }
+    }
+
+    static class ResourceChangedException
+        extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        ResourceChangedException( String message )
+        {
+            super( message );
+        }
+    }
+}
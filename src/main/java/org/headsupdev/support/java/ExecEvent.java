@@ -0,0 +1,188 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The timings and results of a single command, passed to each <code>ExecListener</code>. Values that are not yet
+ * known, or that could not be measured, are -1.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ExecEvent
+{
+    private final List<String> command;
+    private final long startMillis = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+
+    private volatile long pid = -1, spawnNanos = -1, wallNanos = -1, cpuNanos = -1;
+    private volatile long outputBytes = -1, errorBytes = -1;
+    private volatile int exitCode = ExecUtil.EXECUTION_FAILED;
+    private volatile boolean timedOut;
+    private volatile Object attachment;
+
+    ExecEvent( List<String> command )
+    {
+        this.command = Collections.unmodifiableList( new ArrayList<String>( command ) );
+    }
+
+    /**
+     * @return The command that was executed
+     */
+    public List<String> getCommand()
+    {
+        return command;
+    }
+
+    /**
+     * @return The process id of the command, or -1 if it did not start
+     */
+    public long getPid()
+    {
+        return pid;
+    }
+
+    /**
+     * @return The time, in milliseconds since the epoch, when the command was requested to start
+     */
+    public long getStartMillis()
+    {
+        return startMillis;
+    }
+
+    /**
+     * Get how long it took to create the process. For a pipeline stage this includes starting the stages before it.
+     *
+     * @return The time taken to start the process, in nanoseconds
+     */
+    public long getSpawnNanos()
+    {
+        return spawnNanos;
+    }
+
+    /**
+     * @return The time from requesting the start until the command exited and its output was copied, in nanoseconds
+     */
+    public long getWallNanos()
+    {
+        return wallNanos;
+    }
+
+    /**
+     * Get the CPU time used by the process itself, not including any processes it started. This is only available
+     * when the output was copied by <code>ExecUtil</code> and the operating system reported it as the output
+     * was closed.
+     *
+     * @return The CPU time of the process, in nanoseconds, or -1 if it is not known
+     */
+    public long getCpuNanos()
+    {
+        return cpuNanos;
+    }
+
+    /**
+     * @return The number of bytes copied from the standard output, or -1 if it was redirected by the operating system
+     */
+    public long getOutputBytes()
+    {
+        return outputBytes;
+    }
+
+    /**
+     * @return The number of bytes copied from the standard error, or -1 if it was redirected by the operating system
+     */
+    public long getErrorBytes()
+    {
+        return errorBytes;
+    }
+
+    /**
+     * @return The exit code of the command, or one of the <code>ExecUtil.EXECUTION_</code> codes
+     */
+    public int getExitCode()
+    {
+        return exitCode;
+    }
+
+    /**
+     * @return true if the command was stopped because it reached its timeout
+     */
+    public boolean isTimedOut()
+    {
+        return timedOut;
+    }
+
+    /**
+     * @return The object attached by a listener, or null
+     */
+    public Object getAttachment()
+    {
+        return attachment;
+    }
+
+    /**
+     * Attach an object to this event, such as a trace span, so that it can be found again when the command finishes.
+     *
+     * @param attachment The object to attach
+     */
+    public void setAttachment( Object attachment )
+    {
+        this.attachment = attachment;
+    }
+
+    void spawned( long pid )
+    {
+        this.spawnNanos = System.nanoTime() - startNanos;
+        this.pid = pid;
+    }
+
+    void failed()
+    {
+        this.spawnNanos = System.nanoTime() - startNanos;
+    }
+
+    void sampleCpu( Process process )
+    {
+        Duration cpu = process.info().totalCpuDuration().orElse( null );
+        if ( cpu != null )
+        {
+            cpuNanos = cpu.toNanos();
+        }
+    }
+
+    void finished( int exitCode, boolean timedOut, long outputBytes, long errorBytes )
+    {
+        this.exitCode = exitCode;
+        this.timedOut = timedOut;
+        this.outputBytes = outputBytes;
+        this.errorBytes = errorBytes;
+        this.wallNanos = System.nanoTime() - startNanos;
+    }
+
+    public String toString()
+    {
+        return "ExecEvent" + command + " pid=" + pid + " exit=" + exitCode + " spawnNanos=" + spawnNanos +
+                " wallNanos=" + wallNanos + " cpuNanos=" + cpuNanos;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The standard input for a command started through <code>ExecUtil</code>. A file is connected to the process
+ * directly by the operating system, whilst streams and channels are copied to the process in blocks on the stream
+ * executor. The process's input is closed once the source is exhausted. Sources are not closed.
+ * If the source cannot be read the process is stopped and fails with the exception, rather than running to
+ * completion on part of its input.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ExecInput
+{
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private File file;
+    private InputStream stream;
+    private ReadableByteChannel channel;
+
+    private ExecInput( File file, InputStream stream, ReadableByteChannel channel )
+    {
+        this.file = file;
+        this.stream = stream;
+        this.channel = channel;
+    }
+
+    /**
+     * @param file The file to redirect to the process's input
+     * @return An input that reads from the file without copying through Java
+     */
+    public static ExecInput fromFile( File file )
+    {
+        return new ExecInput( file, null, null );
+    }
+
+    /**
+     * @param in The stream to copy to the process's input
+     * @return An input that copies from the stream
+     */
+    public static ExecInput fromStream( InputStream in )
+    {
+        return new ExecInput( null, in, null );
+    }
+
+    /**
+     * @param channel The channel to copy to the process's input
+     * @return An input that copies from the channel
+     */
+    public static ExecInput fromChannel( ReadableByteChannel channel )
+    {
+        return new ExecInput( null, null, channel );
+    }
+
+    /**
+     * @param data The bytes to pass to the process's input
+     * @return An input that copies the data
+     */
+    public static ExecInput fromBytes( byte[] data )
+    {
+        return new ExecInput( null, new ByteArrayInputStream( data ), null );
+    }
+
+    void redirect( ProcessBuilder builder )
+    {
+        if ( file != null )
+        {
+            builder.redirectInput( file );
+        }
+    }
+
+    /**
+     * Get a task that copies the source to the process's input.
+     *
+     * @param process The process to copy to
+     * @param result Completed once the input is copied, or with an exception if the source could not be read.
+     *   The process exiting, or closing its input, before reading everything is not a failure
+     * @return The copying task, or null if the operating system is doing it
+     */
+    Runnable copier( final Process process, final CompletableFuture<Void> result )
+    {
+        if ( file != null )
+        {
+            result.complete( null );
+            return null;
+        }
+
+        return new Runnable()
+        {
+            public void run()
+            {
+                OutputStream out = process.getOutputStream();
+                try
+                {
+                    copy( out );
+                    result.complete( null );
+                }
+                catch ( IOException e )
+                {
+                    // stop the process before closing its input, so that it never sees a normal end of its input -
+                    // the tree is stopped first while its descendants can still be found through it. The handle
+                    // is used as Process.destroy would also close the output that is still being copied
+                    result.completeExceptionally( new IOException( "Unable to read the input for the process",
+                            e ) );
+                    process.toHandle().destroyForcibly();
+                }
+                finally
+                {
+                    IOUtil.close( out );
+                }
+            }
+        };
+    }
+
+    /**
+     * Copy the source to the process, throwing only if the source cannot be read.
+     */
+    private void copy( OutputStream out )
+        throws IOException
+    {
+        byte[] block = new byte[BLOCK_SIZE];
+        if ( stream != null )
+        {
+            int read;
+            while ( ( read = stream.read( block ) ) != -1 )
+            {
+                if ( !write( out, block, read ) )
+                {
+                    return;
+                }
+            }
+        }
+        else
+        {
+            ByteBuffer buffer = ByteBuffer.wrap( block );
+            while ( channel.read( buffer ) != -1 )
+            {
+                if ( !write( out, block, buffer.position() ) )
+                {
+                    return;
+                }
+                buffer.clear();
+            }
+        }
+        write( out, block, 0 );
+    }
+
+    private static boolean write( OutputStream out, byte[] block, int length )
+    {
+        try
+        {
+            out.write( block, 0, length );
+            out.flush();
+            return true;
+        }
+        catch ( IOException e )
+        {
+            // the process exited, or closed its input, before reading everything
+            return false;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.IOException;
+
+/**
+ * Receives an event for each command that <code>ExecUtil</code> starts, for gathering metrics or tracing.
+ * Register listeners with <code>ExecUtil.addListener</code>; when none are registered no events are created.
+ * Calls are made from the thread starting the command or from the threads copying its output, so implementations
+ * should return quickly.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public interface ExecListener
+{
+    /**
+     * Called once a command's process has been created, before any of its output is read.
+     *
+     * @param event The event for the command, the same instance is passed to the matching finish
+     */
+    void processStarted( ExecEvent event );
+
+    /**
+     * Called once a command has exited and all of its output has been copied.
+     *
+     * @param event The completed event for the command
+     */
+    void processFinished( ExecEvent event );
+
+    /**
+     * Called when a command's process could not be created. No other calls are made for the event.
+     *
+     * @param event The event for the command, with its spawn time
+     * @param failure The reason the command could not be started
+     */
+    void processFailed( ExecEvent event, IOException failure );
+}
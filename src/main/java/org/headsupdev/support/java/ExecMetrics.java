@@ -0,0 +1,270 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A listener that totals the events of every command started by <code>ExecUtil</code>, for reporting how time is
+ * split between starting processes, running them and copying their output. Register it with
+ * <code>ExecUtil.addListener</code>; {@link #toMap()} gives a snapshot suitable for exporting to a monitoring system.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ExecMetrics
+    implements ExecListener
+{
+    private LongAdder started = new LongAdder();
+    private LongAdder failed = new LongAdder();
+    private LongAdder completed = new LongAdder();
+    private LongAdder timedOut = new LongAdder();
+    private LongAdder totalSpawnNanos = new LongAdder();
+    private AtomicLong maxSpawnNanos = new AtomicLong();
+    private LongAdder totalWallNanos = new LongAdder();
+    private LongAdder totalCpuNanos = new LongAdder();
+    private LongAdder cpuSamples = new LongAdder();
+    private LongAdder outputBytes = new LongAdder();
+    private LongAdder errorBytes = new LongAdder();
+    private ConcurrentMap<Integer, LongAdder> exitCodes = new ConcurrentHashMap<Integer, LongAdder>();
+
+    // only count the finish of commands we saw start, so registering part way through stays consistent
+    private Set<ExecEvent> running = Collections.newSetFromMap( new ConcurrentHashMap<ExecEvent, Boolean>() );
+    private AtomicInteger maxRunning = new AtomicInteger();
+
+    public void processStarted( ExecEvent event )
+    {
+        started.increment();
+        addSpawn( event.getSpawnNanos() );
+
+        running.add( event );
+        int count = running.size();
+        int max;
+        while ( count > ( max = maxRunning.get() ) && !maxRunning.compareAndSet( max, count ) )
+        {
+            // retry until we are the largest or someone else beat us
+        }
+    }
+
+    public void processFinished( ExecEvent event )
+    {
+        if ( !running.remove( event ) )
+        {
+            return;
+        }
+
+        completed.increment();
+        if ( event.isTimedOut() )
+        {
+            timedOut.increment();
+        }
+        totalWallNanos.add( event.getWallNanos() );
+        if ( event.getCpuNanos() >= 0 )
+        {
+            totalCpuNanos.add( event.getCpuNanos() );
+            cpuSamples.increment();
+        }
+        outputBytes.add( Math.max( 0, event.getOutputBytes() ) );
+        errorBytes.add( Math.max( 0, event.getErrorBytes() ) );
+
+        LongAdder count = exitCodes.get( event.getExitCode() );
+        if ( count == null )
+        {
+            exitCodes.putIfAbsent( event.getExitCode(), new LongAdder() );
+            count = exitCodes.get( event.getExitCode() );
+        }
+        count.increment();
+    }
+
+    public void processFailed( ExecEvent event, IOException failure )
+    {
+        failed.increment();
+        addSpawn( event.getSpawnNanos() );
+    }
+
+    private void addSpawn( long nanos )
+    {
+        totalSpawnNanos.add( nanos );
+        long max;
+        while ( nanos > ( max = maxSpawnNanos.get() ) && !maxSpawnNanos.compareAndSet( max, nanos ) )
+        {
+            // retry until we are the largest or someone else beat us
+        }
+    }
+
+    /**
+     * @return The number of commands that have been started
+     */
+    public long getStartedCount()
+    {
+        return started.sum();
+    }
+
+    /**
+     * @return The number of commands that could not be started
+     */
+    public long getFailedCount()
+    {
+        return failed.sum();
+    }
+
+    /**
+     * @return The number of commands that have finished running
+     */
+    public long getCompletedCount()
+    {
+        return completed.sum();
+    }
+
+    /**
+     * @return The number of commands that were stopped by their timeout
+     */
+    public long getTimedOutCount()
+    {
+        return timedOut.sum();
+    }
+
+    /**
+     * @return The number of commands currently running
+     */
+    public int getRunningCount()
+    {
+        return running.size();
+    }
+
+    /**
+     * @return The most commands that have been running at once
+     */
+    public int getMaxRunningCount()
+    {
+        return maxRunning.get();
+    }
+
+    /**
+     * @return The mean time taken to start a process, including failed attempts, in milliseconds
+     */
+    public double getAverageSpawnMillis()
+    {
+        long count = started.sum() + failed.sum();
+        return count == 0 ? 0 : totalSpawnNanos.sum() / 1000000.0 / count;
+    }
+
+    /**
+     * @return The longest time taken to start a process, in milliseconds
+     */
+    public long getMaxSpawnMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( maxSpawnNanos.get() );
+    }
+
+    /**
+     * @return The mean time from starting a command until it finished and its output was copied, in milliseconds
+     */
+    public double getAverageWallMillis()
+    {
+        long count = completed.sum();
+        return count == 0 ? 0 : totalWallNanos.sum() / 1000000.0 / count;
+    }
+
+    /**
+     * @return The mean CPU time of the commands where it could be measured, in milliseconds
+     * @see ExecEvent#getCpuNanos()
+     */
+    public double getAverageCpuMillis()
+    {
+        long count = cpuSamples.sum();
+        return count == 0 ? 0 : totalCpuNanos.sum() / 1000000.0 / count;
+    }
+
+    /**
+     * @return The total bytes copied from the standard output of finished commands
+     */
+    public long getOutputBytes()
+    {
+        return outputBytes.sum();
+    }
+
+    /**
+     * @return The total bytes copied from the standard error of finished commands
+     */
+    public long getErrorBytes()
+    {
+        return errorBytes.sum();
+    }
+
+    /**
+     * @return The number of finished commands for each exit code, in order of exit code
+     */
+    public Map<Integer, Long> getExitCodeCounts()
+    {
+        Map<Integer, Long> ret = new TreeMap<Integer, Long>();
+        for ( Map.Entry<Integer, LongAdder> entry : exitCodes.entrySet() )
+        {
+            ret.put( entry.getKey(), entry.getValue().sum() );
+        }
+
+        return ret;
+    }
+
+    /**
+     * Take a snapshot of all the metrics, named for exporting. Exit code counts are named
+     * <code>exec.exit.&lt;code&gt;</code>.
+     *
+     * @return The current value of each metric, by name
+     */
+    public Map<String, Number> toMap()
+    {
+        Map<String, Number> ret = new LinkedHashMap<String, Number>();
+        ret.put( "exec.started", getStartedCount() );
+        ret.put( "exec.failed", getFailedCount() );
+        ret.put( "exec.completed", getCompletedCount() );
+        ret.put( "exec.timedOut", getTimedOutCount() );
+        ret.put( "exec.running", getRunningCount() );
+        ret.put( "exec.running.max", getMaxRunningCount() );
+        ret.put( "exec.spawn.averageMillis", getAverageSpawnMillis() );
+        ret.put( "exec.spawn.maxMillis", getMaxSpawnMillis() );
+        ret.put( "exec.wall.averageMillis", getAverageWallMillis() );
+        ret.put( "exec.cpu.averageMillis", getAverageCpuMillis() );
+        ret.put( "exec.output.bytes", getOutputBytes() );
+        ret.put( "exec.error.bytes", getErrorBytes() );
+        for ( Map.Entry<Integer, Long> entry : getExitCodeCounts().entrySet() )
+        {
+            ret.put( "exec.exit." + entry.getKey(), entry.getValue() );
+        }
+
+        return ret;
+    }
+
+    public String toString()
+    {
+        return "ExecMetrics: " + getRunningCount() + " running, " + getCompletedCount() + " completed, " +
+                getFailedCount() + " failed";
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Where the standard output or error of a command started through <code>ExecUtil</code> should go. Output written to
+ * a stream or channel is copied on the stream executor. Every other destination is connected to the process by the
+ * operating system, so no thread is needed and the output never passes through Java.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ExecOutput
+{
+    private static final ExecOutput DISCARD = new ExecOutput( null, ProcessBuilder.Redirect.DISCARD, false );
+    private static final ExecOutput INHERIT = new ExecOutput( null, ProcessBuilder.Redirect.INHERIT, false );
+    private static final ExecOutput MERGE = new ExecOutput( null, null, true );
+
+    private OutputStream stream;
+    private ProcessBuilder.Redirect redirect;
+    private boolean merge;
+
+    private ExecOutput( OutputStream stream, ProcessBuilder.Redirect redirect, boolean merge )
+    {
+        this.stream = stream;
+        this.redirect = redirect;
+        this.merge = merge;
+    }
+
+    /**
+     * @param out The stream to copy the output to
+     * @return An output that copies to the stream
+     */
+    public static ExecOutput toStream( OutputStream out )
+    {
+        if ( out == null )
+        {
+            return DISCARD;
+        }
+
+        return new ExecOutput( out, null, false );
+    }
+
+    /**
+     * @param channel The channel to copy the output to
+     * @return An output that copies to the channel
+     */
+    public static ExecOutput toChannel( WritableByteChannel channel )
+    {
+        return toStream( Channels.newOutputStream( channel ) );
+    }
+
+    /**
+     * @param file The file to write the output to, replacing any existing content
+     * @return An output that the operating system writes to the file
+     */
+    public static ExecOutput toFile( File file )
+    {
+        return new ExecOutput( null, ProcessBuilder.Redirect.to( file ), false );
+    }
+
+    /**
+     * @param file The file to add the output to the end of
+     * @return An output that the operating system appends to the file
+     */
+    public static ExecOutput appendTo( File file )
+    {
+        return new ExecOutput( null, ProcessBuilder.Redirect.appendTo( file ), false );
+    }
+
+    /**
+     * @return An output that goes to the same place as this JVM's output
+     */
+    public static ExecOutput inherit()
+    {
+        return INHERIT;
+    }
+
+    /**
+     * @return An output that is thrown away by the operating system
+     */
+    public static ExecOutput discard()
+    {
+        return DISCARD;
+    }
+
+    /**
+     * Send the standard error to wherever the standard output is going, interleaved as the command writes it.
+     * This can only be used for the error output.
+     *
+     * @return An error output that is merged into the standard output
+     */
+    public static ExecOutput mergeWithOutput()
+    {
+        return MERGE;
+    }
+
+    /**
+     * @return The stream that output should be copied to, or null if the operating system is handling it
+     */
+    OutputStream getStream()
+    {
+        return stream;
+    }
+
+    /**
+     * @return true if this error output is merged into the standard output
+     */
+    boolean isMerge()
+    {
+        return merge;
+    }
+
+    void redirectOutput( ProcessBuilder builder )
+    {
+        if ( merge )
+        {
+            throw new IllegalArgumentException( "Only the error output can be merged with the output" );
+        }
+        if ( redirect != null )
+        {
+            builder.redirectOutput( redirect );
+        }
+    }
+
+    void redirectError( ProcessBuilder builder )
+    {
+        if ( merge )
+        {
+            builder.redirectErrorStream( true );
+        }
+        else if ( redirect != null )
+        {
+            builder.redirectError( redirect );
+        }
+    }
+
+    /**
+     * Get an output that several processes can write to at once. A file that would be replaced by each process is
+     * instead emptied once and then appended to.
+     */
+    ExecOutput shared()
+        throws IOException
+    {
+        if ( redirect == null || redirect.type() != ProcessBuilder.Redirect.Type.WRITE )
+        {
+            return this;
+        }
+
+        Files.write( redirect.file().toPath(), new byte[0], StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE );
+        return appendTo( redirect.file() );
+    }
+}
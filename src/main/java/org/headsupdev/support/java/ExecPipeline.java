@@ -0,0 +1,177 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * A handle to a pipeline of commands started by <code>ExecUtil.startPipeline</code>, where the output of each
+ * command is connected by the operating system to the input of the next.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ExecPipeline
+{
+    private List<ExecProcess> stages;
+    private CompletableFuture<List<Integer>> exit = new CompletableFuture<List<Integer>>();
+
+    ExecPipeline( List<ExecProcess> stages )
+    {
+        this.stages = Collections.unmodifiableList( stages );
+
+        CompletableFuture<?>[] exits = new CompletableFuture<?>[stages.size()];
+        for ( int i = 0; i < exits.length; i++ )
+        {
+            exits[i] = stages.get( i ).onExit();
+        }
+        CompletableFuture.allOf( exits ).whenComplete( new BiConsumer<Void, Throwable>()
+        {
+            public void accept( Void ignored, Throwable failure )
+            {
+                exit.complete( getExitCodes() );
+            }
+        } );
+        exit.whenComplete( new BiConsumer<List<Integer>, Throwable>()
+        {
+            public void accept( List<Integer> codes, Throwable failure )
+            {
+                if ( exit.isCancelled() )
+                {
+                    for ( ExecProcess stage : ExecPipeline.this.stages )
+                    {
+                        stage.onExit().cancel( true );
+                    }
+                }
+            }
+        } );
+    }
+
+    /**
+     * @return The processes in the pipeline, in order
+     */
+    public List<ExecProcess> getStages()
+    {
+        return stages;
+    }
+
+    /**
+     * Get a future for the exit codes of the commands, in pipeline order, which completes once every command has
+     * finished. Cancelling the future forcibly stops every command.
+     *
+     * @return The future exit codes
+     */
+    public CompletableFuture<List<Integer>> onExit()
+    {
+        return exit;
+    }
+
+    /**
+     * Wait for every command in the pipeline to finish.
+     *
+     * @return The exit code of each command, in pipeline order
+     * @throws InterruptedException If interrupted whilst waiting, the commands are left running
+     */
+    public List<Integer> waitFor()
+        throws InterruptedException
+    {
+        try
+        {
+            return exit.get();
+        }
+        catch ( CancellationException e )
+        {
+            return getExitCodes();
+        }
+        catch ( ExecutionException e )
+        {
+            return getExitCodes();
+        }
+    }
+
+    /**
+     * Stop every command in the pipeline if they have not finished within the time given.
+     *
+     * @param time The longest time the pipeline may run for, from now
+     * @param unit The unit of the time parameter
+     * @param grace How long to allow the processes to stop before they are forcibly stopped
+     * @param graceUnit The unit of the grace parameter
+     * @return this pipeline, for chaining calls
+     * @see ExecProcess#setTimeout(long, TimeUnit, long, TimeUnit)
+     */
+    public ExecPipeline setTimeout( long time, TimeUnit unit, long grace, TimeUnit graceUnit )
+    {
+        for ( ExecProcess stage : stages )
+        {
+            stage.setTimeout( time, unit, grace, graceUnit );
+        }
+        return this;
+    }
+
+    /**
+     * Ask every command in the pipeline, and any processes they started, to stop.
+     */
+    public void destroy()
+    {
+        for ( ExecProcess stage : stages )
+        {
+            stage.destroy();
+        }
+    }
+
+    /**
+     * Forcibly stop every command in the pipeline and any processes they started.
+     */
+    public void destroyForcibly()
+    {
+        for ( ExecProcess stage : stages )
+        {
+            stage.destroyForcibly();
+        }
+    }
+
+    private List<Integer> getExitCodes()
+    {
+        List<Integer> codes = new ArrayList<Integer>();
+        for ( ExecProcess stage : stages )
+        {
+            CompletableFuture<Integer> stageExit = stage.onExit();
+            if ( !stageExit.isDone() )
+            {
+                codes.add( null );
+            }
+            else if ( stageExit.isCancelled() || stageExit.isCompletedExceptionally() )
+            {
+                codes.add( ExecUtil.EXECUTION_INTERRUPTED );
+            }
+            else
+            {
+                codes.add( stageExit.join() );
+            }
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * A handle to a command started by <code>ExecUtil.start</code>. No thread is blocked waiting for the process,
+ * {@link #onExit()} completes once the process has exited and all of its output has been copied.
+ *
+ * Stopping the command, by cancelling the exit future, calling a destroy method or reaching the timeout, stops the
+ * whole process tree - any processes the command started are stopped too. Those processes are found through the
+ * command when it is stopped, so any left running after the command itself has exited (for example still holding
+ * its output open) are no longer part of the tree and will not be stopped.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ExecProcess
+{
+    private static final ScheduledExecutorService TIMEOUTS = createTimeoutExecutor();
+
+    private Process process;
+    private CompletableFuture<Void> input;
+    private CompletableFuture<Integer> exit = new CompletableFuture<Integer>();
+
+    private final List<ProcessHandle> tree = new ArrayList<ProcessHandle>();
+    private volatile boolean timedOut;
+    private volatile ScheduledFuture<?> timeout;
+
+    ExecProcess( Process process, CompletableFuture<Void> input, CompletableFuture<Void> output,
+                 CompletableFuture<Void> error )
+    {
+        this.process = process;
+        this.input = input;
+
+        // not waited for, a source that never ends must not stop us noticing the exit
+        input.whenComplete( new BiConsumer<Void, Throwable>()
+        {
+            public void accept( Void ignored, Throwable failure )
+            {
+                if ( failure != null )
+                {
+                    destroyTree( true );
+                }
+            }
+        } );
+
+        CompletableFuture.allOf( process.onExit(), output, error ).whenComplete( new BiConsumer<Void, Throwable>()
+        {
+            public void accept( Void ignored, Throwable failure )
+            {
+                finished();
+            }
+        } );
+        exit.whenComplete( new BiConsumer<Integer, Throwable>()
+        {
+            public void accept( Integer code, Throwable failure )
+            {
+                cancelTimeout();
+                if ( exit.isCancelled() )
+                {
+                    destroyTree( true );
+                }
+            }
+        } );
+    }
+
+    /**
+     * @return The underlying process
+     */
+    public Process getProcess()
+    {
+        return process;
+    }
+
+    /**
+     * @return The operating system's id for the process
+     */
+    public long getPid()
+    {
+        return process.pid();
+    }
+
+    /**
+     * Get a future for the exit code of the command, which completes once the process has exited and its output
+     * has been copied. If the command timed out the code will be <code>ExecUtil.EXECUTION_TIMED_OUT</code>.
+     * If its input could not be read the command is stopped and the future fails with the <code>IOException</code>.
+     * Cancelling the future forcibly stops the process tree.
+     *
+     * @return The future exit code
+     */
+    public CompletableFuture<Integer> onExit()
+    {
+        return exit;
+    }
+
+    /**
+     * Wait for the command to finish.
+     *
+     * @return The exit code of the command, <code>ExecUtil.EXECUTION_TIMED_OUT</code> if it timed out,
+     *   <code>ExecUtil.EXECUTION_INTERRUPTED</code> if it was cancelled or <code>ExecUtil.EXECUTION_FAILED</code>
+     *   if its input could not be read
+     * @throws InterruptedException If interrupted whilst waiting, the command is left running
+     */
+    public int waitFor()
+        throws InterruptedException
+    {
+        try
+        {
+            return exit.get();
+        }
+        catch ( CancellationException e )
+        {
+            return ExecUtil.EXECUTION_INTERRUPTED;
+        }
+        catch ( ExecutionException e )
+        {
+            return ExecUtil.EXECUTION_FAILED;
+        }
+    }
+
+    /**
+     * Stop the command if it has not finished within the time given. The process tree is first asked to stop and, if
+     * it is still running after the grace period, is forcibly stopped. If the command has already exited but
+     * processes it started are still copying output, those processes cannot be found and are not stopped.
+     *
+     * @param time The longest time the command may run for, from now
+     * @param unit The unit of the time parameter
+     * @param grace How long to allow the processes to stop before they are forcibly stopped
+     * @param graceUnit The unit of the grace parameter
+     * @return this handle, for chaining calls
+     */
+    public ExecProcess setTimeout( long time, TimeUnit unit, final long grace, final TimeUnit graceUnit )
+    {
+        cancelTimeout();
+        timeout = TIMEOUTS.schedule( new Runnable()
+        {
+            public void run()
+            {
+                if ( exit.isDone() )
+                {
+                    return;
+                }
+
+                timedOut = true;
+                destroyTree( false );
+                timeout = TIMEOUTS.schedule( new Runnable()
+                {
+                    public void run()
+                    {
+                        destroyTree( true );
+                    }
+                }, grace, graceUnit );
+            }
+        }, time, unit );
+
+        // the command may have finished whilst we were scheduling
+        if ( exit.isDone() )
+        {
+            cancelTimeout();
+        }
+        return this;
+    }
+
+    /**
+     * @return true if the command was stopped because it reached its timeout
+     */
+    public boolean isTimedOut()
+    {
+        return timedOut;
+    }
+
+    /**
+     * @return true if the process has not yet exited
+     */
+    public boolean isAlive()
+    {
+        return process.isAlive();
+    }
+
+    /**
+     * Ask the process, and any processes it started that are still its descendants, to stop.
+     */
+    public void destroy()
+    {
+        destroyTree( false );
+    }
+
+    /**
+     * Forcibly stop the process and any processes it started that are still its descendants.
+     */
+    public void destroyForcibly()
+    {
+        destroyTree( true );
+    }
+
+    private void destroyTree( boolean force )
+    {
+        synchronized ( tree )
+        {
+            // remember the descendants found so far, once the process exits its children are re-parented and
+            // can no longer be found through it, so a later forced stop still reaches them
+            Iterator<ProcessHandle> descendants = process.descendants().iterator();
+            while ( descendants.hasNext() )
+            {
+                ProcessHandle descendant = descendants.next();
+                if ( !tree.contains( descendant ) )
+                {
+                    tree.add( descendant );
+                }
+            }
+
+            destroy( process.toHandle(), force );
+            for ( ProcessHandle descendant : tree )
+            {
+                destroy( descendant, force );
+            }
+        }
+    }
+
+    private static void destroy( ProcessHandle handle, boolean force )
+    {
+        if ( !handle.isAlive() )
+        {
+            return;
+        }
+
+        if ( force )
+        {
+            handle.destroyForcibly();
+        }
+        else
+        {
+            handle.destroy();
+        }
+    }
+
+    private void finished()
+    {
+        IOUtil.close( process.getOutputStream() );
+        IOUtil.close( process.getErrorStream() );
+        IOUtil.close( process.getInputStream() );
+
+        if ( input.isCompletedExceptionally() )
+        {
+            input.whenComplete( new BiConsumer<Void, Throwable>()
+            {
+                public void accept( Void ignored, Throwable failure )
+                {
+                    exit.completeExceptionally( failure );
+                }
+            } );
+            return;
+        }
+
+        exit.complete( timedOut ? ExecUtil.EXECUTION_TIMED_OUT : process.exitValue() );
+    }
+
+    private void cancelTimeout()
+    {
+        ScheduledFuture<?> pending = timeout;
+        if ( pending != null )
+        {
+            pending.cancel( false );
+        }
+    }
+
+    private static ScheduledExecutorService createTimeoutExecutor()
+    {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor( 1, new ThreadFactory()
+        {
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "ExecUtil timeouts" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+        executor.setRemoveOnCancelPolicy( true );
+        return executor;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * A fluent description of a command to execute, with its working directory, environment changes and where its input
+ * and output should go. Environment variables can be set and removed without wrapping the command in a shell, and
+ * the executable is looked up in a cached index of the PATH so the operating system does not search for it on every
+ * start. Where the PATH is overridden the executable is found in the new PATH, as a shell would.
+ *
+ * A request can be started any number of times.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ExecRequest
+{
+    private static final int MAX_PATH_INDEXES = 16;
+
+    // the indexes of recently used PATH overrides, least recently used first so that per-job paths do not pile up
+    private static final Map<String, PathIndex> PATH_INDEXES = new LinkedHashMap<String, PathIndex>( 16, 0.75f, true )
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected boolean removeEldestEntry( Map.Entry<String, PathIndex> eldest )
+        {
+            return size() > MAX_PATH_INDEXES;
+        }
+    };
+
+    private List<String> command;
+    private File directory;
+
+    private Map<String, String> environment = new LinkedHashMap<String, String>();
+    private Set<String> removed = new LinkedHashSet<String>();
+    private boolean inheritEnvironment = true;
+    private boolean resolveExecutable = true;
+
+    private ExecInput input;
+    private ExecOutput output, error;
+    private Executor executor = ExecUtil.getDefaultExecutor();
+
+    /**
+     * @param command The command to execute, where item 0 is the executable and the others are parameters
+     */
+    public ExecRequest( String... command )
+    {
+        this( Arrays.asList( command ) );
+    }
+
+    /**
+     * @param command The command to execute, where item 0 is the executable and the others are parameters
+     */
+    public ExecRequest( List<String> command )
+    {
+        if ( command.isEmpty() )
+        {
+            throw new IllegalArgumentException( "A command must include an executable" );
+        }
+
+        this.command = new ArrayList<String>( command );
+    }
+
+    /**
+     * @param directory The working directory to execute in, null for the current application's working directory
+     * @return this request, for chaining calls
+     */
+    public ExecRequest setDirectory( File directory )
+    {
+        this.directory = directory;
+        return this;
+    }
+
+    /**
+     * Set an environment variable for the command, replacing any inherited value.
+     *
+     * @param name The name of the variable
+     * @param value The value to give it
+     * @return this request, for chaining calls
+     */
+    public ExecRequest setEnvironment( String name, String value )
+    {
+        removed.remove( name );
+        environment.put( name, value );
+        return this;
+    }
+
+    /**
+     * Set many environment variables for the command, replacing any inherited values.
+     *
+     * @param variables The names and values to set
+     * @return this request, for chaining calls
+     */
+    public ExecRequest setEnvironment( Map<String, String> variables )
+    {
+        for ( Map.Entry<String, String> variable : variables.entrySet() )
+        {
+            setEnvironment( variable.getKey(), variable.getValue() );
+        }
+        return this;
+    }
+
+    /**
+     * Remove an inherited environment variable so the command does not see it.
+     *
+     * @param name The name of the variable
+     * @return this request, for chaining calls
+     */
+    public ExecRequest removeEnvironment( String name )
+    {
+        environment.remove( name );
+        removed.add( name );
+        return this;
+    }
+
+    /**
+     * Set whether the command starts with a copy of this application's environment. Defaults to true, if false only
+     * the variables set on this request are passed to the command.
+     *
+     * @param inherit true to pass this application's environment to the command
+     * @return this request, for chaining calls
+     */
+    public ExecRequest setInheritEnvironment( boolean inherit )
+    {
+        this.inheritEnvironment = inherit;
+        return this;
+    }
+
+    /**
+     * Set whether the executable should be looked up in the cached PATH index. Defaults to true. If it is not found
+     * the name is passed to the operating system unchanged.
+     *
+     * @param resolve true to run the executable from its full path
+     * @return this request, for chaining calls
+     * @see PathIndex
+     */
+    public ExecRequest setResolveExecutable( boolean resolve )
+    {
+        this.resolveExecutable = resolve;
+        return this;
+    }
+
+    /**
+     * @param input The source of the command's standard input, or null for none
+     * @return this request, for chaining calls
+     */
+    public ExecRequest setInput( ExecInput input )
+    {
+        this.input = input;
+        return this;
+    }
+
+    /**
+     * @param output Where the standard output should go, or null to discard it
+     * @return this request, for chaining calls
+     */
+    public ExecRequest setOutput( ExecOutput output )
+    {
+        this.output = output;
+        return this;
+    }
+
+    /**
+     * @param error Where the standard error should go, or null to discard it
+     * @return this request, for chaining calls
+     */
+    public ExecRequest setError( ExecOutput error )
+    {
+        this.error = error;
+        return this;
+    }
+
+    /**
+     * @param executor The executor to run the stream copying tasks on
+     * @return this request, for chaining calls
+     */
+    public ExecRequest setExecutor( Executor executor )
+    {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * @return The command that will be executed, with the executable resolved to its full path if possible
+     */
+    public List<String> getCommand()
+    {
+        List<String> ret = new ArrayList<String>( command );
+        if ( resolveExecutable )
+        {
+            File executable = resolve( command.get( 0 ) );
+            if ( executable != null )
+            {
+                ret.set( 0, executable.getPath() );
+            }
+        }
+
+        return Collections.unmodifiableList( ret );
+    }
+
+    /**
+     * Create a process builder for this request. Input and output are not configured, they are set up when the
+     * request is started.
+     *
+     * @return A builder with the command, directory and environment of this request
+     */
+    public ProcessBuilder toProcessBuilder()
+    {
+        ProcessBuilder builder = new ProcessBuilder( getCommand() ).directory( directory );
+        if ( inheritEnvironment && environment.isEmpty() && removed.isEmpty() )
+        {
+            // leave the builder to copy the environment lazily, or not at all
+            return builder;
+        }
+
+        Map<String, String> env = builder.environment();
+        if ( !inheritEnvironment )
+        {
+            env.clear();
+        }
+        env.keySet().removeAll( removed );
+        env.putAll( environment );
+        return builder;
+    }
+
+    /**
+     * Start the command without waiting for it.
+     *
+     * @return A handle for waiting on, or stopping, the command
+     * @throws IOException If the command could not be executed
+     */
+    public ExecProcess start()
+        throws IOException
+    {
+        return ExecUtil.start( toProcessBuilder(), input, output, error, executor );
+    }
+
+    /**
+     * Execute the command and wait for it to finish.
+     *
+     * @return The return code of the command
+     * @throws IOException If the command could not be executed or its input could not be read
+     */
+    public int run()
+        throws IOException
+    {
+        return ExecUtil.run( toProcessBuilder(), input, output, error, executor );
+    }
+
+    static int getPathIndexCount()
+    {
+        synchronized ( PATH_INDEXES )
+        {
+            return PATH_INDEXES.size();
+        }
+    }
+
+    private File resolve( String name )
+    {
+        String path = getPath();
+        // as with a shell, names that include a directory are not looked up in the PATH
+        if ( path == null || name.indexOf( '/' ) != -1 || name.indexOf( File.separatorChar ) != -1 )
+        {
+            return null;
+        }
+
+        PathIndex index;
+        if ( path.equals( System.getenv( "PATH" ) ) )
+        {
+            index = PathIndex.getDefault();
+        }
+        else
+        {
+            synchronized ( PATH_INDEXES )
+            {
+                index = PATH_INDEXES.get( path );
+                if ( index == null )
+                {
+                    // the directories are not listed until the first lookup
+                    index = new PathIndex( path );
+                    PATH_INDEXES.put( path, index );
+                }
+            }
+        }
+
+        File ret = index.lookup( name );
+        // relative path entries depend on the working directory, so leave those to the operating system
+        if ( ret == null || !ret.isAbsolute() || ret.isDirectory() || !ret.canExecute() )
+        {
+            return null;
+        }
+
+        return ret;
+    }
+
+    private String getPath()
+    {
+        if ( environment.containsKey( "PATH" ) )
+        {
+            return environment.get( "PATH" );
+        }
+        if ( !inheritEnvironment || removed.contains( "PATH" ) )
+        {
+            return null;
+        }
+
+        return System.getenv( "PATH" );
+    }
+}
@@ -0,0 +1,532 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs commands with a limit on how many child processes are running at once. Commands submitted beyond the limit
+ * wait in a queue, highest priority first. Within a priority, commands from different groups take turns, so one
+ * group submitting thousands of commands does not hold up another that submits a few.
+ *
+ * Optionally the system load average can also hold back new commands, though at least one command is always
+ * allowed to run. Queue depth, wait and run times are recorded for monitoring.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ExecScheduler
+{
+    private static final long LOAD_RECHECK_MILLIS = 1000;
+    // starts queued commands when others finish, and when the load has been rechecked
+    private static final ScheduledExecutorService DISPATCHER = createDispatchExecutor();
+
+    private static final Comparator<Job> ORDER = new Comparator<Job>()
+    {
+        public int compare( Job a, Job b )
+        {
+            if ( a.priority != b.priority )
+            {
+                return a.priority > b.priority ? -1 : 1;
+            }
+            if ( a.round != b.round )
+            {
+                return a.round < b.round ? -1 : 1;
+            }
+            return Long.compare( a.sequence, b.sequence );
+        }
+    };
+
+    private final Object lock = new Object();
+    private PriorityQueue<Job> queue = new PriorityQueue<Job>( 11, ORDER );
+    private Map<String, Group> groups = new HashMap<String, Group>();
+    private long currentRound, sequence;
+    private int running;
+    private boolean recheckScheduled;
+    private ThreadLocal<Boolean> dispatching = new ThreadLocal<Boolean>();
+
+    private volatile int maxConcurrent;
+    private volatile double maxLoadPerCpu;
+    private OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+    private LongAdder started = new LongAdder();
+    private LongAdder failedStarts = new LongAdder();
+    private LongAdder completed = new LongAdder();
+    private LongAdder totalWaitNanos = new LongAdder();
+    private LongAdder totalRunNanos = new LongAdder();
+    private AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Create a scheduler that runs up to the given number of commands at once.
+     *
+     * @param maxConcurrent The most child processes to run at a time
+     */
+    public ExecScheduler( int maxConcurrent )
+    {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Set the most commands to run at once. Raising the limit starts queued commands straight away.
+     *
+     * @param maxConcurrent The most child processes to run at a time
+     * @return this scheduler, for chaining calls
+     */
+    public ExecScheduler setMaxConcurrent( int maxConcurrent )
+    {
+        this.maxConcurrent = maxConcurrent;
+        dispatch();
+        return this;
+    }
+
+    /**
+     * Hold back new commands whilst the system load average, divided by the number of processors, is above the
+     * given value. Zero, the default, ignores the load. This has no effect where the load average is not available.
+     *
+     * @param maxLoadPerCpu The highest load per processor at which new commands are started
+     * @return this scheduler, for chaining calls
+     */
+    public ExecScheduler setMaxLoadPerCpu( double maxLoadPerCpu )
+    {
+        this.maxLoadPerCpu = maxLoadPerCpu;
+        return this;
+    }
+
+    /**
+     * Queue a command to run with normal priority, discarding its output.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @return A future for the exit code of the command, cancel it to remove the command from the queue or to stop
+     *   it if it has started
+     */
+    public CompletableFuture<Integer> submit( List<String> commands, File dir )
+    {
+        return submit( "", 0, commands, dir, null, null );
+    }
+
+    /**
+     * Queue a command to run.
+     *
+     * @param group The name that commands take turns by, such as a job or user id
+     * @param priority Higher priority commands are started first
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @param output A stream for copying the standard output to, or null to discard it
+     * @param error A stream for copying the standard error to, or null to discard it
+     * @return A future for the exit code of the command, cancel it to remove the command from the queue or to stop
+     *   it if it has started
+     */
+    public CompletableFuture<Integer> submit( String group, int priority, final List<String> commands,
+                                              final File dir, final OutputStream output, final OutputStream error )
+    {
+        return submit( group, priority, new Callable<ExecProcess>()
+        {
+            public ExecProcess call()
+                throws Exception
+            {
+                return ExecUtil.start( commands, dir, output, error );
+            }
+        } );
+    }
+
+    /**
+     * Queue a task that starts a process.
+     *
+     * @param group The name that commands take turns by, such as a job or user id
+     * @param priority Higher priority commands are started first
+     * @param starter Called when the command may start, to start the process
+     * @return A future for the exit code of the command, cancel it to remove the command from the queue or to stop
+     *   it if it has started
+     */
+    public CompletableFuture<Integer> submit( String group, int priority, Callable<ExecProcess> starter )
+    {
+        final Job job = new Job( group, priority, starter );
+        synchronized ( lock )
+        {
+            // each group's commands are spread over successive rounds, starting from the round now being run
+            Group turns = groups.get( group );
+            if ( turns == null )
+            {
+                turns = new Group();
+                groups.put( group, turns );
+            }
+            turns.round = Math.max( turns.round, currentRound ) + 1;
+            turns.queued++;
+            job.round = turns.round;
+            job.sequence = ++sequence;
+            queue.add( job );
+        }
+
+        job.result.whenComplete( new BiConsumer<Integer, Throwable>()
+        {
+            public void accept( Integer code, Throwable failure )
+            {
+                if ( job.result.isCancelled() )
+                {
+                    cancelled( job );
+                }
+            }
+        } );
+
+        dispatch();
+        return job.result;
+    }
+
+    /**
+     * @return The number of commands waiting to start
+     */
+    public int getQueueDepth()
+    {
+        synchronized ( lock )
+        {
+            return queue.size();
+        }
+    }
+
+    /**
+     * @return The number of groups with commands waiting to start
+     */
+    int getQueuedGroupCount()
+    {
+        synchronized ( lock )
+        {
+            return groups.size();
+        }
+    }
+
+    /**
+     * @return The number of commands currently running
+     */
+    public int getRunningCount()
+    {
+        synchronized ( lock )
+        {
+            return running;
+        }
+    }
+
+    /**
+     * @return The number of commands that have been started
+     */
+    public long getStartedCount()
+    {
+        return started.sum();
+    }
+
+    /**
+     * @return The number of commands that could not be started, these are not counted as started or completed
+     */
+    public long getFailedStartCount()
+    {
+        return failedStarts.sum();
+    }
+
+    /**
+     * @return The number of commands that have finished running
+     */
+    public long getCompletedCount()
+    {
+        return completed.sum();
+    }
+
+    /**
+     * @return The mean time that started commands waited in the queue, in milliseconds
+     */
+    public double getAverageWaitMillis()
+    {
+        long count = started.sum();
+        return count == 0 ? 0 : totalWaitNanos.sum() / 1000000.0 / count;
+    }
+
+    /**
+     * @return The longest time that a command waited in the queue, in milliseconds
+     */
+    public long getMaxWaitMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( maxWaitNanos.get() );
+    }
+
+    /**
+     * @return The mean time that finished commands ran for, in milliseconds
+     */
+    public double getAverageRunMillis()
+    {
+        long count = completed.sum();
+        return count == 0 ? 0 : totalRunNanos.sum() / 1000000.0 / count;
+    }
+
+    public String toString()
+    {
+        return "ExecScheduler: " + getRunningCount() + " running, " + getQueueDepth() + " queued, " +
+                getCompletedCount() + " completed";
+    }
+
+    private void dispatch()
+    {
+        // callbacks of commands that fail to start may submit more, loop here rather than recursing back in
+        if ( dispatching.get() != null )
+        {
+            return;
+        }
+
+        dispatching.set( Boolean.TRUE );
+        try
+        {
+            List<Job> ready = new ArrayList<Job>();
+            do
+            {
+                ready.clear();
+                synchronized ( lock )
+                {
+                    while ( !queue.isEmpty() && running < maxConcurrent )
+                    {
+                        if ( running > 0 && isOverloaded() )
+                        {
+                            scheduleRecheck();
+                            break;
+                        }
+
+                        Job job = queue.poll();
+                        currentRound = job.round;
+                        dequeued( job );
+                        running++;
+                        ready.add( job );
+                    }
+                }
+
+                for ( Job job : ready )
+                {
+                    start( job );
+                }
+            }
+            while ( !ready.isEmpty() );
+        }
+        finally
+        {
+            dispatching.remove();
+        }
+    }
+
+    private void start( final Job job )
+    {
+        job.started = System.nanoTime();
+        try
+        {
+            final ExecProcess process = job.starter.call();
+            long waited = job.started - job.queued;
+            totalWaitNanos.add( waited );
+            long max;
+            while ( waited > ( max = maxWaitNanos.get() ) && !maxWaitNanos.compareAndSet( max, waited ) )
+            {
+                // retry until we are the largest or someone else beat us
+            }
+            started.increment();
+
+            synchronized ( job )
+            {
+                job.process = process;
+            }
+
+            process.onExit().whenComplete( new BiConsumer<Integer, Throwable>()
+            {
+                public void accept( Integer code, Throwable failure )
+                {
+                    finished( job );
+                    if ( failure != null )
+                    {
+                        job.result.completeExceptionally( failure );
+                    }
+                    else
+                    {
+                        job.result.complete( code );
+                    }
+                }
+            } );
+
+            // cancelled whilst we were starting it
+            if ( job.result.isCancelled() )
+            {
+                process.onExit().cancel( true );
+            }
+        }
+        catch ( Exception e )
+        {
+            failedStarts.increment();
+            synchronized ( lock )
+            {
+                running--;
+            }
+            job.result.completeExceptionally( e );
+        }
+    }
+
+    private void finished( Job job )
+    {
+        totalRunNanos.add( System.nanoTime() - job.started );
+        completed.increment();
+        synchronized ( lock )
+        {
+            running--;
+        }
+
+        // we are called on whichever thread completed the exit, which should not be held up starting processes
+        DISPATCHER.execute( new Runnable()
+        {
+            public void run()
+            {
+                dispatch();
+            }
+        } );
+    }
+
+    private void cancelled( Job job )
+    {
+        boolean removed;
+        synchronized ( lock )
+        {
+            removed = queue.remove( job );
+            if ( removed )
+            {
+                dequeued( job );
+            }
+        }
+
+        if ( !removed )
+        {
+            ExecProcess process;
+            synchronized ( job )
+            {
+                process = job.process;
+            }
+            if ( process != null )
+            {
+                process.onExit().cancel( true );
+            }
+        }
+    }
+
+    /**
+     * Stop tracking a group once none of its commands are queued, called holding <code>lock</code>.
+     * A group that comes back simply starts from the round being run, as any new group would.
+     */
+    private void dequeued( Job job )
+    {
+        Group turns = groups.get( job.group );
+        if ( --turns.queued == 0 )
+        {
+            groups.remove( job.group );
+        }
+    }
+
+    private boolean isOverloaded()
+    {
+        if ( maxLoadPerCpu <= 0 )
+        {
+            return false;
+        }
+
+        double load = os.getSystemLoadAverage();
+        return load >= 0 && load / os.getAvailableProcessors() > maxLoadPerCpu;
+    }
+
+    private void scheduleRecheck()
+    {
+        if ( recheckScheduled )
+        {
+            return;
+        }
+
+        recheckScheduled = true;
+        DISPATCHER.schedule( new Runnable()
+        {
+            public void run()
+            {
+                synchronized ( lock )
+                {
+                    recheckScheduled = false;
+                }
+                dispatch();
+            }
+        }, LOAD_RECHECK_MILLIS, TimeUnit.MILLISECONDS );
+    }
+
+    private static ScheduledExecutorService createDispatchExecutor()
+    {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor( 1, new ThreadFactory()
+        {
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "ExecScheduler dispatch" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+        executor.setRemoveOnCancelPolicy( true );
+        return executor;
+    }
+
+    /**
+     * The last round given to a group's commands and how many of them are still queued
+     */
+    static class Group
+    {
+        private long round;
+        private int queued;
+    }
+
+    /**
+     * A queued command and, once started, its process
+     */
+    static class Job
+    {
+        private String group;
+        private int priority;
+        private long round, sequence;
+        private Callable<ExecProcess> starter;
+        private long queued = System.nanoTime(), started;
+        private ExecProcess process;
+        private CompletableFuture<Integer> result = new CompletableFuture<Integer>();
+
+        Job( String group, int priority, Callable<ExecProcess> starter )
+        {
+            this.group = group;
+            this.priority = priority;
+            this.starter = starter;
+        }
+    }
+}
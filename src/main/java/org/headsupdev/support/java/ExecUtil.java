@@ -17,7 +17,27 @@
 package org.headsupdev.support.java;
 
 import java.io.*;
+import java.lang.reflect.Method;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 /**
  * A utility class that handles with the streaming data and resource management when executing commands.
@@ -31,6 +51,47 @@ public class ExecUtil
 {
     public static final int EXECUTION_FAILED = -1;
     public static final int EXECUTION_INTERRUPTED = -2;
+    public static final int EXECUTION_TIMED_OUT = -3;
+
+    /**
+     * The most pooled threads kept for copying process output, beyond this short lived threads are used
+     */
+    public static final int MAX_POOLED_STREAM_THREADS = 256;
+
+    private static final Executor STREAM_EXECUTOR = createStreamExecutor();
+    private static final List<ExecListener> LISTENERS = new CopyOnWriteArrayList<ExecListener>();
+
+    /**
+     * Get the executor that copies process output when none is passed to <code>execute</code>.
+     * This uses virtual threads when the runtime supports them, otherwise a shared pool of daemon threads that are
+     * reused between processes.
+     *
+     * @return The shared executor for process streams
+     */
+    public static Executor getDefaultExecutor()
+    {
+        return STREAM_EXECUTOR;
+    }
+
+    /**
+     * Add a listener to be notified of every command started through this class, <code>ExecRequest</code> or
+     * <code>ExecScheduler</code>. Whilst no listeners are registered commands are not measured at all.
+     *
+     * @param listener The listener to add
+     * @see ExecMetrics
+     */
+    public static void addListener( ExecListener listener )
+    {
+        LISTENERS.add( listener );
+    }
+
+    /**
+     * @param listener The listener to stop notifying
+     */
+    public static void removeListener( ExecListener listener )
+    {
+        LISTENERS.remove( listener );
+    }
 
     /**
      * Execute the given command in the current application's working directory.
@@ -72,10 +133,275 @@ public class ExecUtil
     public static int execute( List<String> commands, File dir, Writer output, Writer error )
             throws IOException
     {
-        ExecConfig config = new ExecConfig( commands, dir, output, error );
+        return execute( commands, dir, output, error, STREAM_EXECUTOR );
+    }
+
+    /**
+     * Execute the given command in the specified working directory, copying its output on the executor provided.
+     * Two tasks are run for each process and they must not be queued behind each other, or behind the tasks of
+     * other processes, as a process may block until its output is read.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @param output A writer for copying the standard output to
+     * @param error A writer for copying the standard error to
+     * @param executor The executor to run the stream copying tasks on
+     * @return The return code of the command
+     * @throws IOException If the command could not be executed
+     */
+    public static int execute( List<String> commands, File dir, Writer output, Writer error, Executor executor )
+            throws IOException
+    {
+        return executeToStreams( commands, dir, decoding( output ), decoding( error ), executor );
+    }
+
+    /**
+     * Execute the given command in the specified working directory, copying the raw bytes of its output.
+     * Output is copied in large blocks exactly as the command wrote it, so binary output is preserved.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @param output A stream for copying the standard output to, or null to discard it
+     * @param error A stream for copying the standard error to, or null to discard it
+     * @return The return code of the command
+     * @throws IOException If the command could not be executed
+     */
+    public static int executeToStreams( List<String> commands, File dir, OutputStream output, OutputStream error )
+            throws IOException
+    {
+        return executeToStreams( commands, dir, output, error, STREAM_EXECUTOR );
+    }
+
+    /**
+     * Execute the given command in the specified working directory, copying the raw bytes of its output on the
+     * executor provided.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @param output A stream for copying the standard output to, or null to discard it
+     * @param error A stream for copying the standard error to, or null to discard it
+     * @param executor The executor to run the stream copying tasks on
+     * @return The return code of the command
+     * @throws IOException If the command could not be executed
+     * @see #execute(List, File, Writer, Writer, Executor)
+     */
+    public static int executeToStreams( List<String> commands, File dir, OutputStream output, OutputStream error,
+                                        Executor executor )
+            throws IOException
+    {
+        ExecConfig config = new ExecConfig( commands, dir, output, error, executor );
         return config.run();
     }
 
+    /**
+     * Start the given command in the specified working directory without waiting for it, discarding its output.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @return A handle for waiting on, or stopping, the command
+     * @throws IOException If the command could not be executed
+     */
+    public static ExecProcess start( List<String> commands, File dir )
+            throws IOException
+    {
+        return start( commands, dir, null, null, STREAM_EXECUTOR );
+    }
+
+    /**
+     * Start the given command in the specified working directory without waiting for it.
+     * Use {@link ExecProcess#onExit()} to be notified when the command has finished.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @param output A stream for copying the standard output to, or null to discard it
+     * @param error A stream for copying the standard error to, or null to discard it
+     * @return A handle for waiting on, or stopping, the command
+     * @throws IOException If the command could not be executed
+     */
+    public static ExecProcess start( List<String> commands, File dir, OutputStream output, OutputStream error )
+            throws IOException
+    {
+        return start( commands, dir, output, error, STREAM_EXECUTOR );
+    }
+
+    /**
+     * Start the given command in the specified working directory without waiting for it, copying its output on
+     * the executor provided.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @param output A stream for copying the standard output to, or null to discard it
+     * @param error A stream for copying the standard error to, or null to discard it
+     * @param executor The executor to run the stream copying tasks on
+     * @return A handle for waiting on, or stopping, the command
+     * @throws IOException If the command could not be executed
+     * @see #execute(List, File, Writer, Writer, Executor)
+     */
+    public static ExecProcess start( List<String> commands, File dir, OutputStream output, OutputStream error,
+                                     Executor executor )
+            throws IOException
+    {
+        return start( commands, dir, null, output, error, executor );
+    }
+
+    /**
+     * Start the given command in the specified working directory without waiting for it, passing it input.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @param input The source of the command's standard input, or null for none
+     * @param output A stream for copying the standard output to, or null to discard it
+     * @param error A stream for copying the standard error to, or null to discard it
+     * @return A handle for waiting on, or stopping, the command
+     * @throws IOException If the command could not be executed
+     */
+    public static ExecProcess start( List<String> commands, File dir, ExecInput input, OutputStream output,
+                                     OutputStream error )
+            throws IOException
+    {
+        return start( commands, dir, input, output, error, STREAM_EXECUTOR );
+    }
+
+    /**
+     * Start the given command in the specified working directory without waiting for it, passing it input and
+     * copying its output on the executor provided.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @param input The source of the command's standard input, or null for none
+     * @param output A stream for copying the standard output to, or null to discard it
+     * @param error A stream for copying the standard error to, or null to discard it
+     * @param executor The executor to run the stream copying tasks on
+     * @return A handle for waiting on, or stopping, the command
+     * @throws IOException If the command could not be executed
+     */
+    public static ExecProcess start( List<String> commands, File dir, ExecInput input, OutputStream output,
+                                     OutputStream error, Executor executor )
+            throws IOException
+    {
+        ExecConfig config = new ExecConfig( commands, dir, output, error, executor );
+        config.setInput( input );
+        return config.start();
+    }
+
+    /**
+     * Start the given command in the specified working directory without waiting for it, sending its output to the
+     * destinations given. Output that is redirected to a file, inherited or discarded is handled by the operating
+     * system, so no threads are used to copy it.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @param input The source of the command's standard input, or null for none
+     * @param output Where the standard output should go, or null to discard it
+     * @param error Where the standard error should go, or null to discard it
+     * @return A handle for waiting on, or stopping, the command
+     * @throws IOException If the command could not be executed
+     */
+    public static ExecProcess start( List<String> commands, File dir, ExecInput input, ExecOutput output,
+                                     ExecOutput error )
+            throws IOException
+    {
+        return start( commands, dir, input, output, error, STREAM_EXECUTOR );
+    }
+
+    /**
+     * Start the given command without waiting for it, copying any output that goes to a stream on the executor given.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @param input The source of the command's standard input, or null for none
+     * @param output Where the standard output should go, or null to discard it
+     * @param error Where the standard error should go, or null to discard it
+     * @param executor The executor to run the stream copying tasks on
+     * @return A handle for waiting on, or stopping, the command
+     * @throws IOException If the command could not be executed
+     */
+    public static ExecProcess start( List<String> commands, File dir, ExecInput input, ExecOutput output,
+                                     ExecOutput error, Executor executor )
+            throws IOException
+    {
+        return start( new ProcessBuilder( commands ).directory( dir ), input, output, error, executor );
+    }
+
+    /**
+     * Start a pipeline of commands, where the standard output of each is connected to the standard input of the
+     * next by the operating system, so the data passing between them is never copied through Java.
+     *
+     * @param commands The commands to execute, in order, where item 0 of each is the executable
+     * @param dir The working directory to execute in
+     * @param input The source of the first command's standard input, or null for none
+     * @param output A stream for copying the last command's standard output to, or null to discard it
+     * @param error A stream for copying the standard error of every command to, or null to discard it
+     * @return A handle for waiting on, or stopping, the pipeline
+     * @throws IOException If the commands could not be executed
+     */
+    public static ExecPipeline startPipeline( List<List<String>> commands, File dir, ExecInput input,
+                                              OutputStream output, OutputStream error )
+            throws IOException
+    {
+        return startPipeline( commands, dir, input, output, error, STREAM_EXECUTOR );
+    }
+
+    /**
+     * Start a pipeline of commands, copying the output on the executor provided.
+     *
+     * @param commands The commands to execute, in order, where item 0 of each is the executable
+     * @param dir The working directory to execute in
+     * @param input The source of the first command's standard input, or null for none
+     * @param output A stream for copying the last command's standard output to, or null to discard it
+     * @param error A stream for copying the standard error of every command to, or null to discard it
+     * @param executor The executor to run the stream copying tasks on
+     * @return A handle for waiting on, or stopping, the pipeline
+     * @throws IOException If the commands could not be executed
+     * @see #startPipeline(List, File, ExecInput, OutputStream, OutputStream)
+     */
+    public static ExecPipeline startPipeline( List<List<String>> commands, File dir, ExecInput input,
+                                              OutputStream output, OutputStream error, Executor executor )
+            throws IOException
+    {
+        return ExecConfig.startPipeline( commands, dir, input, ExecOutput.toStream( output ),
+                ExecOutput.toStream( error ), executor );
+    }
+
+    /**
+     * Start a pipeline of commands, sending the output to the destinations given. When neither output is copied
+     * to a stream no threads are used.
+     *
+     * @param commands The commands to execute, in order, where item 0 of each is the executable
+     * @param dir The working directory to execute in
+     * @param input The source of the first command's standard input, or null for none
+     * @param output Where the last command's standard output should go, or null to discard it
+     * @param error Where the standard error of every command should go, or null to discard it. If merged with the
+     *   output every command's error goes to where the last command's output goes
+     * @return A handle for waiting on, or stopping, the pipeline
+     * @throws IOException If the commands could not be executed
+     */
+    public static ExecPipeline startPipeline( List<List<String>> commands, File dir, ExecInput input,
+                                              ExecOutput output, ExecOutput error )
+            throws IOException
+    {
+        return ExecConfig.startPipeline( commands, dir, input, output, error, STREAM_EXECUTOR );
+    }
+
+    /**
+     * Execute the given command in the specified working directory, writing the raw bytes of its output to
+     * channels, such as a <code>FileChannel</code>.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @param output A channel for copying the standard output to, or null to discard it
+     * @param error A channel for copying the standard error to, or null to discard it
+     * @return The return code of the command
+     * @throws IOException If the command could not be executed
+     */
+    public static int executeToChannels( List<String> commands, File dir, WritableByteChannel output,
+                                         WritableByteChannel error )
+            throws IOException
+    {
+        return executeToStreams( commands, dir, output == null ? null : Channels.newOutputStream( output ),
+                error == null ? null : Channels.newOutputStream( error ), STREAM_EXECUTOR );
+    }
+
     /**
      * Execute the given command in the current application's working directory.
      * Any exceptions encountered will be appended to the error writer.
@@ -102,7 +428,25 @@ public class ExecUtil
      */
     public static int executeLoggingExceptions( List<String> commands, File dir, Writer output, Writer error )
     {
-        ExecConfig config = new ExecConfig( commands, dir, output, error );
+        return executeLoggingExceptions( commands, dir, output, error, STREAM_EXECUTOR );
+    }
+
+    /**
+     * Execute the given command in the specified working directory, copying its output on the executor provided.
+     * Any exceptions encountered will be appended to the error writer.
+     *
+     * @param commands The command to execute, where item 0 is the executable and the others are parameters
+     * @param dir The working directory to execute in
+     * @param output A writer for copying the standard output to
+     * @param error A writer for copying the standard error to
+     * @param executor The executor to run the stream copying tasks on
+     * @return The return code of the command
+     * @see #execute(List, File, Writer, Writer, Executor)
+     */
+    public static int executeLoggingExceptions( List<String> commands, File dir, Writer output, Writer error,
+                                                Executor executor )
+    {
+        ExecConfig config = new ExecConfig( commands, dir, decoding( output ), decoding( error ), executor );
         try
         {
             return config.run();
@@ -117,97 +461,381 @@ public class ExecUtil
             return ExecUtil.EXECUTION_FAILED;
         }
     }
+
+    static ExecProcess start( ProcessBuilder builder, ExecInput input, ExecOutput output, ExecOutput error,
+                              Executor executor )
+            throws IOException
+    {
+        ExecConfig config = new ExecConfig( builder, output, error, executor );
+        config.setInput( input );
+        return config.start();
+    }
+
+    static int run( ProcessBuilder builder, ExecInput input, ExecOutput output, ExecOutput error, Executor executor )
+            throws IOException
+    {
+        ExecConfig config = new ExecConfig( builder, output, error, executor );
+        config.setInput( input );
+        return config.run();
+    }
+
+    static ExecEvent trace( List<String> command )
+    {
+        if ( LISTENERS.isEmpty() )
+        {
+            return null;
+        }
+
+        return new ExecEvent( command );
+    }
+
+    static void fireStarted( ExecEvent event )
+    {
+        for ( ExecListener listener : LISTENERS )
+        {
+            try
+            {
+                listener.processStarted( event );
+            }
+            catch ( RuntimeException e )
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    static void fireFinished( ExecEvent event )
+    {
+        for ( ExecListener listener : LISTENERS )
+        {
+            try
+            {
+                listener.processFinished( event );
+            }
+            catch ( RuntimeException e )
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    static void fireFailed( ExecEvent event, IOException failure )
+    {
+        if ( event == null )
+        {
+            return;
+        }
+
+        event.failed();
+        for ( ExecListener listener : LISTENERS )
+        {
+            try
+            {
+                listener.processFailed( event, failure );
+            }
+            catch ( RuntimeException e )
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static OutputStream decoding( Writer writer )
+    {
+        if ( writer == null )
+        {
+            return null;
+        }
+
+        return new WriterOutputStream( writer, Charset.defaultCharset() );
+    }
+
+    private static Executor createStreamExecutor()
+    {
+        try
+        {
+            // Java 21+, looked up reflectively so that we still run on older runtimes
+            Method virtual = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+            return (ExecutorService) virtual.invoke( null );
+        }
+        catch ( Exception e )
+        {
+            // fall back to pooled platform threads
+        }
+
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadFactory factory = new ThreadFactory()
+        {
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "ExecUtil stream " + count.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        };
+
+        // never queue, a stream waiting for a thread could block its process, so overflow to a new thread instead
+        return new ThreadPoolExecutor( 0, MAX_POOLED_STREAM_THREADS, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), factory, new RejectedExecutionHandler()
+        {
+            public void rejectedExecution( Runnable runnable, ThreadPoolExecutor executor )
+            {
+                factory.newThread( runnable ).start();
+            }
+        } );
+    }
 }
 
 class ExecConfig
 {
-    private List<String> commands;
-    private File dir;
+    // how long an interrupted command has to finish copying its output before we stop waiting for it
+    private static final long INTERRUPTED_WAIT_MILLIS = 2000;
+
+    private ProcessBuilder builder;
+
+    private ExecOutput output, error;
+    private ExecInput input;
+    private Executor executor;
 
-    private Writer outWriter, errWriter;
+    public ExecConfig( List<String> commands, File dir, OutputStream output, OutputStream error,
+                       Executor executor )
+    {
+        this( commands, dir, ExecOutput.toStream( output ), ExecOutput.toStream( error ), executor );
+    }
 
-    private StreamGobbler sout, serr;
-    private Process process;
+    public ExecConfig( List<String> commands, File dir, ExecOutput output, ExecOutput error, Executor executor )
+    {
+        this( new ProcessBuilder( commands ).directory( dir ), output, error, executor );
+    }
 
-    public ExecConfig( List<String> commands, File dir, Writer output, Writer error )
+    public ExecConfig( ProcessBuilder builder, ExecOutput output, ExecOutput error, Executor executor )
     {
-        this.commands = commands;
-        this.dir = dir;
+        this.builder = builder;
 
-        this.outWriter = output;
-        this.errWriter = error;
+        this.output = output == null ? ExecOutput.discard() : output;
+        this.error = error == null ? ExecOutput.discard() : error;
+        this.executor = executor;
     }
 
-    public int run()
+    public void setInput( ExecInput input )
+    {
+        this.input = input;
+    }
+
+    public ExecProcess start()
             throws IOException
     {
-        int ret = ExecUtil.EXECUTION_FAILED;
+        if ( input != null )
+        {
+            input.redirect( builder );
+        }
+        output.redirectOutput( builder );
+        error.redirectError( builder );
+
+        ExecEvent event = ExecUtil.trace( builder.command() );
+        Process process;
         try
         {
-            process = Runtime.getRuntime().exec( commands.toArray( new String[commands.size()] ), null, dir );
+            process = builder.start();
+        }
+        catch ( IOException e )
+        {
+            ExecUtil.fireFailed( event, e );
+            throw e;
+        }
 
-            sout = new StreamGobbler( new InputStreamReader( process.getInputStream() ), outWriter );
-            serr = new StreamGobbler( new InputStreamReader( process.getErrorStream() ), errWriter );
+        return attach( process, input, output.getStream(), error.getStream(), executor, event );
+    }
 
-            serr.start();
-            sout.start();
+    static ExecPipeline startPipeline( List<List<String>> commands, File dir, ExecInput input,
+                                       ExecOutput output, ExecOutput error, Executor executor )
+            throws IOException
+    {
+        output = output == null ? ExecOutput.discard() : output;
+        // every stage writes to the error output. A merged error can only be merged by the last stage, the others
+        // would feed it into the next stage's input, so they write straight to where the output goes
+        error = error == null ? ExecOutput.discard() : error.shared();
+        ExecOutput stageError = error;
+        if ( error.isMerge() )
+        {
+            output = output.shared();
+            stageError = output;
+        }
 
-            ret = process.waitFor();
+        List<ProcessBuilder> builders = new ArrayList<ProcessBuilder>();
+        for ( List<String> command : commands )
+        {
+            ProcessBuilder builder = new ProcessBuilder( command ).directory( dir );
+            ( builders.size() == commands.size() - 1 ? error : stageError ).redirectError( builder );
+            builders.add( builder );
         }
-        catch ( InterruptedException e )
+        if ( input != null )
         {
-            // TODO use this hook when we cancel the process
-            ret = ExecUtil.EXECUTION_INTERRUPTED;
+            input.redirect( builders.get( 0 ) );
         }
-        finally
+        output.redirectOutput( builders.get( builders.size() - 1 ) );
+
+        List<ExecEvent> events = new ArrayList<ExecEvent>();
+        for ( List<String> command : commands )
+        {
+            events.add( ExecUtil.trace( command ) );
+        }
+        List<Process> processes;
+        try
+        {
+            processes = ProcessBuilder.startPipeline( builders );
+        }
+        catch ( IOException e )
         {
-            if ( process != null )
+            for ( ExecEvent event : events )
             {
-                // defensively try to close the gobblers
-                waitForStreamGobblersToComplete();
-
-                IOUtil.close( process.getOutputStream() );
-                IOUtil.close( process.getErrorStream() );
-                IOUtil.close( process.getInputStream() );
-                process.destroy();
+                ExecUtil.fireFailed( event, e );
             }
+            throw e;
         }
 
-        return ret;
+        List<ExecProcess> stages = new ArrayList<ExecProcess>();
+        for ( int i = 0; i < processes.size(); i++ )
+        {
+            boolean last = i == processes.size() - 1;
+            stages.add( attach( processes.get( i ), i == 0 ? input : null, last ? output.getStream() : null,
+                    ( last ? error : stageError ).getStream(), executor, events.get( i ) ) );
+        }
+
+        return new ExecPipeline( stages );
     }
 
-    private void waitForStreamGobblersToComplete()
+    private static ExecProcess attach( Process process, ExecInput input, OutputStream output, OutputStream error,
+                                       Executor executor, ExecEvent event )
     {
-        // defensively try to close the gobblers
-        // check that our gobblers are finished...
-        while ( !isComplete( sout ) || !isComplete( serr ) )
+        CompletableFuture<Void> copied = new CompletableFuture<Void>();
+        Runnable copier = input == null ? null : input.copier( process, copied );
+        if ( copier != null )
         {
-            try
+            StreamGobbler.execute( copier, executor );
+        }
+        else if ( input == null )
+        {
+            copied.complete( null );
+        }
+        StreamGobbler sout = copy( process.getInputStream(), output, executor );
+        StreamGobbler serr = copy( process.getErrorStream(), error, executor );
+        if ( event == null )
+        {
+            return new ExecProcess( process, copied, completion( sout ), completion( serr ) );
+        }
+
+        return trace( process, copied, sout, serr, event );
+    }
+
+    private static ExecProcess trace( final Process process, CompletableFuture<Void> input,
+                                      final StreamGobbler sout, final StreamGobbler serr, final ExecEvent event )
+    {
+        event.spawned( process.pid() );
+        ExecUtil.fireStarted( event );
+
+        CompletableFuture<Void> copied = CompletableFuture.allOf( completion( sout ), completion( serr ) );
+        if ( sout != null || serr != null )
+        {
+            // the output normally closes as the process exits, the OS forgets its CPU time once it has been reaped
+            copied = copied.thenRun( new Runnable()
             {
-                Thread.sleep( 500 );
-            }
-            catch ( InterruptedException e )
+                public void run()
+                {
+                    event.sampleCpu( process );
+                }
+            } );
+        }
+
+        final ExecProcess ret = new ExecProcess( process, input, copied, completion( null ) );
+        ret.onExit().whenComplete( new BiConsumer<Integer, Throwable>()
+        {
+            public void accept( Integer code, Throwable failure )
             {
-                // we were just trying to tidy up...
+                event.finished( code == null ? ExecUtil.EXECUTION_INTERRUPTED : code, ret.isTimedOut(),
+                        sout == null ? -1 : sout.getByteCount(), serr == null ? -1 : serr.getByteCount() );
+                ExecUtil.fireFinished( event );
             }
+        } );
+        return ret;
+    }
+
+    private static StreamGobbler copy( InputStream in, OutputStream out, Executor executor )
+    {
+        if ( out == null )
+        {
+            // redirected by the operating system, there is nothing for us to read
+            return null;
+        }
+
+        StreamGobbler gobbler = new StreamGobbler( in, out );
+        gobbler.start( executor );
+        return gobbler;
+    }
+
+    private static CompletableFuture<Void> completion( StreamGobbler gobbler )
+    {
+        if ( gobbler == null )
+        {
+            return CompletableFuture.completedFuture( null );
         }
+
+        return gobbler.completion();
     }
 
-    private boolean isComplete( StreamGobbler gobbler )
+    public int run()
+            throws IOException
     {
-        return ( gobbler == null || gobbler.isComplete() );
+        ExecProcess process = start();
+        try
+        {
+            return process.onExit().get();
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof IOException )
+            {
+                throw (IOException) e.getCause();
+            }
+            return ExecUtil.EXECUTION_FAILED;
+        }
+        catch ( InterruptedException e )
+        {
+            // stop the command and wait briefly for the copying of its output to finish, processes that escaped the
+            // tree may hold the output open so the copying is left to finish in the background
+            process.destroyForcibly();
+            try
+            {
+                process.onExit().get( INTERRUPTED_WAIT_MILLIS, TimeUnit.MILLISECONDS );
+            }
+            catch ( InterruptedException | ExecutionException | TimeoutException ignored )
+            {
+                // stop waiting
+            }
+
+            Thread.currentThread().interrupt();
+            return ExecUtil.EXECUTION_INTERRUPTED;
+        }
     }
 }
 
+/**
+ * Copies one of a process's output streams to a sink in large blocks, reading to the end of the stream even if the
+ * sink fails so that the process is never blocked on a full pipe.
+ */
 class StreamGobbler
-        extends Thread
+        implements Runnable
 {
-    private Reader in;
-    private Writer out;
+    static final int BLOCK_SIZE = 64 * 1024;
 
-    private boolean complete = false;
+    private InputStream in;
+    private OutputStream out;
 
-    public StreamGobbler( Reader in, Writer out )
+    private final CompletableFuture<Void> complete = new CompletableFuture<Void>();
+    // read once complete, which publishes the value
+    private long count;
+
+    public StreamGobbler( InputStream in, OutputStream out )
     {
         this.in = in;
         this.out = out;
@@ -217,26 +845,99 @@ class StreamGobbler
     {
         try
         {
-            BufferedReader reader = new BufferedReader( in );
-            String line;
-            while ( ( line = reader.readLine() ) != null )
+            byte[] block = new byte[BLOCK_SIZE];
+            int read;
+            while ( ( read = in.read( block ) ) != -1 )
             {
-                if ( out != null )
-                {
-                    out.write( line );
-                    out.write( '\n' );
-                }
+                count += read;
+                write( block, read );
             }
+
+            finish();
         }
         catch ( IOException e )
         {
             e.printStackTrace();
         }
+        finally
+        {
+            complete.complete( null );
+        }
+    }
+
+    /**
+     * @return The number of bytes read from the process so far
+     */
+    public long getByteCount()
+    {
+        return count;
+    }
+
+    private void write( byte[] block, int length )
+    {
+        if ( out == null )
+        {
+            return;
+        }
 
-        complete = true;
+        try
+        {
+            // the error sink may be shared by the stages of a pipeline
+            synchronized ( out )
+            {
+                out.write( block, 0, length );
+            }
+        }
+        catch ( IOException e )
+        {
+            e.printStackTrace();
+            // keep draining the process, but stop writing
+            out = null;
+        }
+    }
+
+    private void finish()
+            throws IOException
+    {
+        if ( out == null )
+        {
+            return;
+        }
+
+        synchronized ( out )
+        {
+            if ( out instanceof WriterOutputStream )
+            {
+                ( (WriterOutputStream) out ).finish();
+            }
+            else
+            {
+                out.flush();
+            }
+        }
+    }
+
+    public void start( Executor executor )
+    {
+        execute( this, executor );
+    }
+
+    static void execute( Runnable task, Executor executor )
+    {
+        try
+        {
+            executor.execute( task );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            // the stream must be copied or the process may never finish
+            Thread thread = new Thread( task, "ExecUtil stream" );
+            thread.setDaemon( true );
+            thread.start();
+        }
     }
 
-    public boolean isComplete()
+    public CompletableFuture<Void> completion()
     {
         return complete;
     }
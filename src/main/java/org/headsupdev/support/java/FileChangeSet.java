@@ -0,0 +1,85 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A batch of changes reported by a <code>FileWatcher</code>. Repeated events for a file are coalesced, so each file
+ * appears in at most one set: a file created and then modified is only created, and a file created and then deleted
+ * within the same batch is not reported at all.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class FileChangeSet
+{
+    private Set<File> created, modified, deleted;
+
+    FileChangeSet( Set<File> created, Set<File> modified, Set<File> deleted )
+    {
+        this.created = Collections.unmodifiableSet( created );
+        this.modified = Collections.unmodifiableSet( modified );
+        this.deleted = Collections.unmodifiableSet( deleted );
+    }
+
+    /**
+     * @return The files and directories that were created
+     */
+    public Set<File> getCreated()
+    {
+        return created;
+    }
+
+    /**
+     * @return The files and directories that were modified
+     */
+    public Set<File> getModified()
+    {
+        return modified;
+    }
+
+    /**
+     * @return The files and directories that were deleted
+     */
+    public Set<File> getDeleted()
+    {
+        return deleted;
+    }
+
+    /**
+     * @return true if the file was created, modified or deleted in this batch
+     */
+    public boolean contains( File file )
+    {
+        return created.contains( file ) || modified.contains( file ) || deleted.contains( file );
+    }
+
+    public boolean isEmpty()
+    {
+        return created.isEmpty() && modified.isEmpty() && deleted.isEmpty();
+    }
+
+    public String toString()
+    {
+        return "Created " + created + ", modified " + modified + ", deleted " + deleted;
+    }
+}
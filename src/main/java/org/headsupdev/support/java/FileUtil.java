@@ -18,6 +18,22 @@ package org.headsupdev.support.java;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Various utility methods for working with files
@@ -27,6 +43,18 @@ import java.net.URL;
  */
 public class FileUtil
 {
+    /**
+     * The size, in bytes, above which files are memory mapped rather than read onto the heap
+     */
+    public static final long MAP_THRESHOLD = 1024 * 1024;
+
+    /**
+     * The number of connections used by <code>downloadToFile</code> for servers that support range requests
+     */
+    public static final int DEFAULT_DOWNLOAD_CONNECTIONS = 4;
+
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
     /**
      * Create a temporary directory similar to the <code>File.createTempFile( String prefix, String suffix )</code> method.
      *
@@ -176,6 +204,7 @@ public class FileUtil
 
     /**
      * Delete a file (or if recursing, a directory of files), throwing an exception if they could not be deleted.
+     * When recursing, symbolic links are deleted rather than followed - see {@link #deleteTree(File)}.
      *
      * @param file The file or directory to delete
      * @param recurse Whether or not we should recurse, passing false on a directory with files in it will cause
@@ -185,18 +214,16 @@ public class FileUtil
     public static void delete( File file, boolean recurse )
         throws IOException
     {
-        // check if the file exists only if it's actually a file (symlink issue)
-        if ( file.isFile() && !file.exists() )
+        if ( recurse )
         {
+            FileUtil.deleteTree( file );
             return;
         }
 
-        if ( file.isDirectory() && recurse )
+        // check if the file exists only if it's actually a file (symlink issue)
+        if ( file.isFile() && !file.exists() )
         {
-            for ( File child : file.listFiles() )
-            {
-                FileUtil.delete( child, recurse );
-            }
+            return;
         }
 
         if ( !file.delete() )
@@ -205,9 +232,110 @@ public class FileUtil
         }
     }
 
+    /**
+     * Recursively delete a file or directory tree, deleting in parallel on the common fork/join pool.
+     * Symbolic links are deleted, never followed, and the depth of the tree is not limited by the stack size.
+     * All paths that can be deleted will be, even if some fail.
+     *
+     * @param file The file or directory to delete
+     * @return A summary of the files, directories and bytes removed
+     * @throws IOException If the file did not exist or any path in the tree could not be deleted
+     */
+    public static DeleteResult deleteTree( File file )
+        throws IOException
+    {
+        return FileUtil.deleteTree( file, ForkJoinPool.commonPool() );
+    }
+
+    /**
+     * Recursively delete a file or directory tree, deleting in parallel on the specified fork/join pool.
+     * Symbolic links are deleted, never followed, and the depth of the tree is not limited by the stack size.
+     * All paths that can be deleted will be, even if some fail.
+     *
+     * @param file The file or directory to delete
+     * @param pool The pool to run the deletion tasks on
+     * @return A summary of the files, directories and bytes removed
+     * @throws IOException If the file did not exist or any path in the tree could not be deleted
+     */
+    public static DeleteResult deleteTree( File file, ForkJoinPool pool )
+        throws IOException
+    {
+        return new TreeDeleter().delete( file.toPath(), pool );
+    }
+
+    /**
+     * Gather statistics for a file or directory tree, using the default options. Symbolic links are counted but
+     * not followed.
+     *
+     * @param file The file or directory to scan
+     * @return The sizes, counts, largest files and ages found
+     * @throws IOException If the file does not exist or could not be read
+     * @see #scanTree(File, ScanOptions)
+     */
+    public static ScanResult scanTree( File file )
+        throws IOException
+    {
+        return FileUtil.scanTree( file, new ScanOptions() );
+    }
+
+    /**
+     * Gather statistics for a file or directory tree, walking directories in parallel. Each entry's attributes are
+     * read once and paths that cannot be read are counted in the result rather than stopping the scan.
+     * Partial results are sent to the listener in the options, if set, whilst large trees are scanned.
+     *
+     * @param file The file or directory to scan
+     * @param options The settings for following links, the largest files, age buckets and progress reporting
+     * @return The sizes, counts, largest files and ages found
+     * @throws IOException If the file does not exist or could not be read
+     */
+    public static ScanResult scanTree( File file, ScanOptions options )
+        throws IOException
+    {
+        return new TreeScanner( options ).scan( file.toPath() );
+    }
+
+    /**
+     * Copy a file or directory tree, using the default options. Only files whose size or modification time differ
+     * from an existing destination file will be copied, so repeated copies of a large tree are quick.
+     *
+     * @param source The file or directory to copy
+     * @param dest The location to copy to, parent directories must already exist
+     * @return A summary of the files copied and skipped
+     * @throws IOException If any path in the tree could not be copied
+     * @see #copyTree(File, File, CopyOptions)
+     */
+    public static CopyResult copyTree( File source, File dest )
+        throws IOException
+    {
+        return FileUtil.copyTree( source, dest, new CopyOptions() );
+    }
+
+    /**
+     * Copy a file or directory tree in parallel. File content is transferred between channels without passing
+     * through the Java heap and symbolic links are copied as links. Files that are already up to date, according to
+     * the comparison in the options, are skipped. All paths that can be copied will be, even if some fail.
+     * A destination directory is only deleted to make way for a file of the same name if the options delete
+     * extraneous files, otherwise that path fails.
+     *
+     * @param source The file or directory to copy
+     * @param dest The location to copy to, parent directories must already exist
+     * @param options The settings for comparing files, copying attributes and removing extra destination files
+     * @return A summary of the files copied, skipped and deleted
+     * @throws IOException If any path in the tree could not be copied
+     */
+    public static CopyResult copyTree( File source, File dest, CopyOptions options )
+        throws IOException
+    {
+        return new TreeCopier( options ).copy( source.toPath(), dest.toPath() );
+    }
+
     /**
      * Load a file content to a string.
      * Character conversions will be performed using the UTF-8 character set.
+     * Line endings are normalised to "\n" and the last line is always terminated, as with <code>IOUtil.toString</code>.
+     *
+     * Files larger than {@link #MAP_THRESHOLD} are memory mapped and decoded directly from the mapped buffer,
+     * smaller files are read in a single call.
      *
      * @param file The file to read the string content of
      * @return The contents of the named file, parsed using UTF-8
@@ -221,9 +349,14 @@ public class FileUtil
 
         try
         {
-            return IOUtil.toString( new FileInputStream( file ) );
+            if ( file.length() > MAP_THRESHOLD )
+            {
+                return IOUtil.toString( mapReadOnly( file ), UTF8 );
+            }
+
+            return IOUtil.toString( ByteBuffer.wrap( Files.readAllBytes( file.toPath() ) ), UTF8 );
         }
-        catch ( FileNotFoundException e )
+        catch ( IOException e )
         {
             // TODO report somehow... (need central logging?)
             e.printStackTrace();
@@ -232,6 +365,35 @@ public class FileUtil
         return null;
     }
 
+    /**
+     * Map the content of a file into memory for reading. This is the fastest way to scan the bytes of large files
+     * as the content is paged in by the operating system without being copied onto the heap.
+     * The mapping remains valid after this method returns, until the buffer is garbage collected.
+     *
+     * @param file The file to map
+     * @return A read-only buffer of the file's content
+     * @throws IOException If the file could not be read or is larger than 2GB
+     */
+    public static MappedByteBuffer mapReadOnly( File file )
+        throws IOException
+    {
+        FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+        try
+        {
+            long size = channel.size();
+            if ( size > Integer.MAX_VALUE )
+            {
+                throw new IOException( "File too large to map: " + file.getPath() );
+            }
+
+            return channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+        }
+        finally
+        {
+            IOUtil.close( channel );
+        }
+    }
+
     /**
      * Write a string to the given file. Output will be started at the beginning of the file,
      * removing any previous content.
@@ -273,55 +435,170 @@ public class FileUtil
     }
 
     /**
-     * Download the contents of a url into a file.
+     * Write a string to the given file using the specified character set. Unlike the other
+     * <code>writeToFile</code> methods no line separator is added unless the NEWLINE option is passed.
+     * Use ATOMIC to replace the file content so that a crash can never leave it truncated, and SYNC to ensure the
+     * content is on disk before returning.
      *
-     * @param url The url to download from
-     * @param file The file to write into
-     * @throws IOException If there was a problem copying the data into the specified file
+     * @param string The text to write to the file
+     * @param file The file to write the string to
+     * @param charset The character set to encode the string with
+     * @param options The options controlling how the file is written
+     * @throws IOException If there is an error in writing to the file
      */
-    public static void downloadToFile( URL url, File file )
+    public static void writeToFile( String string, File file, Charset charset, WriteOption... options )
         throws IOException
     {
-        InputStream in = null;
-        OutputStream out = null;
+        EnumSet<WriteOption> optionSet = EnumSet.noneOf( WriteOption.class );
+        optionSet.addAll( Arrays.asList( options ) );
+        if ( optionSet.contains( WriteOption.ATOMIC ) && optionSet.contains( WriteOption.APPEND ) )
+        {
+            throw new IllegalArgumentException( "Atomic writes cannot append" );
+        }
 
-        try
+        String content = string;
+        if ( optionSet.contains( WriteOption.NEWLINE ) )
         {
-            in = url.openStream();
-            out = new FileOutputStream( file );
+            content = string + System.getProperty( "line.separator" );
+        }
+        ByteBuffer data = charset.encode( content );
 
-            IOUtil.copyStream( in, out );
+        if ( !optionSet.contains( WriteOption.ATOMIC ) )
+        {
+            Set<StandardOpenOption> openOptions = EnumSet.of( StandardOpenOption.WRITE, StandardOpenOption.CREATE );
+            openOptions.add( optionSet.contains( WriteOption.APPEND ) ? StandardOpenOption.APPEND :
+                    StandardOpenOption.TRUNCATE_EXISTING );
+            writeFully( file.toPath(), openOptions, data, optionSet.contains( WriteOption.SYNC ) );
+            return;
+        }
+
+        Path target = file.getAbsoluteFile().toPath();
+        // created with CREATE_NEW rather than createTempFile so the new file gets the usual default permissions
+        Path temp = target.resolveSibling( "." + target.getFileName() + "." + Long.toHexString( System.nanoTime() ) +
+                Thread.currentThread().getId() + ".tmp" );
+        try
+        {
+            writeFully( temp, EnumSet.of( StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW ), data, true );
+            copyPermissions( target, temp );
+            try
+            {
+                Files.move( temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+            }
+            catch ( AtomicMoveNotSupportedException e )
+            {
+                Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING );
+            }
         }
         finally
         {
-            IOUtil.close( in );
-            IOUtil.close( out );
+            Files.deleteIfExists( temp );
+        }
+
+        if ( optionSet.contains( WriteOption.SYNC ) )
+        {
+            syncDirectory( target.getParent() );
+        }
+    }
+
+    private static void writeFully( Path path, Set<StandardOpenOption> openOptions, ByteBuffer data, boolean sync )
+        throws IOException
+    {
+        try ( FileChannel channel = FileChannel.open( path, openOptions ) )
+        {
+            while ( data.hasRemaining() )
+            {
+                channel.write( data );
+            }
+
+            if ( sync )
+            {
+                channel.force( true );
+            }
+        }
+    }
+
+    private static void copyPermissions( Path from, Path to )
+        throws IOException
+    {
+        PosixFileAttributeView fromView = Files.getFileAttributeView( from, PosixFileAttributeView.class );
+        if ( fromView == null || !Files.exists( from ) )
+        {
+            return;
+        }
+
+        Files.setPosixFilePermissions( to, fromView.readAttributes().permissions() );
+    }
+
+    private static void syncDirectory( Path dir )
+    {
+        // make the rename durable - not all platforms allow a directory to be opened, so this is best effort
+        try ( FileChannel channel = FileChannel.open( dir, StandardOpenOption.READ ) )
+        {
+            channel.force( true );
+        }
+        catch ( IOException e )
+        {
+            // ignore
         }
     }
 
+    /**
+     * Download the contents of a url into a file.
+     * The download is written to a temporary file which replaces the target file once complete, so the target is
+     * never left partially written. Large HTTP downloads from servers that support ranges are fetched over several
+     * connections, and if one failed part way it will be resumed from the ".part" file it left next to the target.
+     *
+     * @param url The url to download from
+     * @param file The file to write into
+     * @throws IOException If there was a problem copying the data into the specified file
+     */
+    public static void downloadToFile( URL url, File file )
+        throws IOException
+    {
+        FileUtil.downloadToFile( url, file, DEFAULT_DOWNLOAD_CONNECTIONS );
+    }
+
+    /**
+     * Download the contents of a url into a file, using up to the specified number of parallel connections.
+     * The download is written to a temporary file which replaces the target file once complete, so the target is
+     * never left partially written. If a previous large download of the same content failed part way it will be
+     * resumed.
+     *
+     * @param url The url to download from
+     * @param file The file to write into
+     * @param connections The maximum number of connections to use, if the server supports range requests
+     * @throws IOException If there was a problem copying the data into the specified file
+     */
+    public static void downloadToFile( URL url, File file, int connections )
+        throws IOException
+    {
+        new Downloader( connections ).download( url, file );
+    }
+
     /**
      * Lookup a file in the OS's PATH. This method loads the PATH environment variable and
      * attempts to locate the requested filename in each item of the path.
      * If unmatched the method will return null.
      *
+     * The PATH directories are indexed on first use, see {@link PathIndex}, so repeated lookups are fast.
+     *
      * @param filename The filename that we wish to find on the path
      * @return The full path to the file, if found. If nothing matched then we return null.
      */
     public static File lookupInPath( String filename )
     {
-        String path = System.getenv( "PATH" );
-        String paths[] = path.split( File.pathSeparator );
-
-        for ( String p : paths )
-        {
-            File ret = new File( p, filename );
-            if ( ret.exists() )
-            {
-                return ret;
-            }
-        }
+        return PathIndex.getDefault().lookup( filename );
+    }
 
-        return null;
+    /**
+     * Lookup many files in the OS's PATH at once.
+     *
+     * @param filenames The filenames that we wish to find on the path
+     * @return A map of each filename to its full path, or to null if it was not found, in the order requested
+     */
+    public static Map<String, File> lookupAllInPath( Collection<String> filenames )
+    {
+        return PathIndex.getDefault().lookupAll( filenames );
     }
 
     /**
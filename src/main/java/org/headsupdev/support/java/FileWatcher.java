@@ -0,0 +1,554 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a directory tree for changes, delivering them to listeners in batches.
+ * Every directory in the tree is registered with the file system's <code>WatchService</code>, including directories
+ * created later. Events are collected until no more have arrived for the debounce time (or ten times the debounce
+ * time has passed since the first) and repeated events for a file are coalesced, so a burst of writes results in a
+ * single notification.
+ *
+ * If the watch service is not available, or registering a directory fails - such as when the inotify watch limit is
+ * reached - the watcher falls back to polling, comparing the modification time and size of every file against the
+ * previous poll. Polling can also be chosen up front for file systems that do not report changes, such as network
+ * mounts.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class FileWatcher
+    implements Closeable
+{
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+    public static final long DEFAULT_POLL_MILLIS = 2000;
+
+    private static final int MAX_DEBOUNCE_FACTOR = 10;
+
+    private static final Executor DIRECT = new Executor()
+    {
+        public void execute( Runnable command )
+        {
+            command.run();
+        }
+    };
+
+    private enum Change
+    {
+        CREATED, MODIFIED, DELETED
+    }
+
+    private Path root;
+    private long debounceNanos = TimeUnit.MILLISECONDS.toNanos( DEFAULT_DEBOUNCE_MILLIS );
+    private long pollNanos = TimeUnit.MILLISECONDS.toNanos( DEFAULT_POLL_MILLIS );
+    private Executor executor = DIRECT;
+    private List<FileChangeListener> listeners = new CopyOnWriteArrayList<FileChangeListener>();
+
+    private volatile boolean polling, closed;
+    private volatile WatchService watcher;
+    private Thread thread;
+
+    // only accessed by the watching thread once started
+    private Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+    private Map<Path, long[]> snapshot;
+    private Map<Path, Change> pending = new LinkedHashMap<Path, Change>();
+    private long firstChange, deliverAt;
+
+    /**
+     * Create a watcher for a directory and everything below it. Call {@link #start()} to begin watching.
+     *
+     * @param root The directory to watch
+     */
+    public FileWatcher( File root )
+    {
+        this.root = root.toPath();
+    }
+
+    /**
+     * Set how long to wait for a burst of changes to settle before notifying listeners. Defaults to 100ms.
+     *
+     * @param time The quiet time required before a batch is delivered
+     * @param unit The unit of the time parameter
+     * @return this watcher, for chaining calls
+     */
+    public FileWatcher setDebounce( long time, TimeUnit unit )
+    {
+        this.debounceNanos = unit.toNanos( time );
+        return this;
+    }
+
+    /**
+     * Set how often the tree is checked when polling. Defaults to 2 seconds.
+     *
+     * @param time The time between polls
+     * @param unit The unit of the time parameter
+     * @return this watcher, for chaining calls
+     */
+    public FileWatcher setPollInterval( long time, TimeUnit unit )
+    {
+        this.pollNanos = Math.max( 1, unit.toNanos( time ) );
+        return this;
+    }
+
+    /**
+     * Set whether to poll for changes rather than use the file system's watch service. This must be set before the
+     * watcher is started.
+     *
+     * @param polling true to always poll
+     * @return this watcher, for chaining calls
+     */
+    public FileWatcher setPolling( boolean polling )
+    {
+        this.polling = polling;
+        return this;
+    }
+
+    /**
+     * Set the executor that listeners are notified on. By default listeners are called on the watching thread, so
+     * a slow listener delays the following batch. With a multi-threaded executor batches may arrive out of order.
+     *
+     * @param executor The executor to deliver changes with
+     * @return this watcher, for chaining calls
+     */
+    public FileWatcher setExecutor( Executor executor )
+    {
+        this.executor = executor;
+        return this;
+    }
+
+    public void addListener( FileChangeListener listener )
+    {
+        listeners.add( listener );
+    }
+
+    public void removeListener( FileChangeListener listener )
+    {
+        listeners.remove( listener );
+    }
+
+    /**
+     * @return true if changes are being found by polling rather than by the watch service
+     */
+    public boolean isPolling()
+    {
+        return polling;
+    }
+
+    /**
+     * Register the tree and start the watching thread. Changes made before this method returns are not reported.
+     *
+     * @throws IOException If the directory tree could not be read
+     */
+    public synchronized void start()
+        throws IOException
+    {
+        if ( thread != null )
+        {
+            throw new IllegalStateException( "Watcher already started" );
+        }
+
+        if ( !polling )
+        {
+            try
+            {
+                watcher = root.getFileSystem().newWatchService();
+                registerAll( root, false );
+            }
+            catch ( IOException e )
+            {
+                stopWatching();
+            }
+            catch ( UnsupportedOperationException e )
+            {
+                stopWatching();
+            }
+        }
+        if ( polling )
+        {
+            snapshot = scan();
+        }
+
+        thread = new Thread( new Runnable()
+        {
+            public void run()
+            {
+                watchLoop();
+            }
+        }, "FileWatcher " + root.getFileName() );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    /**
+     * Stop watching. Pending changes that have not yet been delivered are discarded.
+     *
+     * @throws IOException If interrupted waiting for the watching thread to finish
+     */
+    public void close()
+        throws IOException
+    {
+        closed = true;
+        IOUtil.close( watcher );
+
+        Thread running;
+        synchronized ( this )
+        {
+            running = thread;
+        }
+        if ( running == null || running == Thread.currentThread() )
+        {
+            return;
+        }
+
+        running.interrupt();
+        try
+        {
+            running.join();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted waiting for watcher to stop" );
+        }
+    }
+
+    private void watchLoop()
+    {
+        long nextPoll = System.nanoTime() + pollNanos;
+        try
+        {
+            while ( !closed )
+            {
+                long wait = polling ? nextPoll - System.nanoTime() : TimeUnit.SECONDS.toNanos( 1 );
+                if ( !pending.isEmpty() )
+                {
+                    wait = Math.min( wait, deliverAt - System.nanoTime() );
+                }
+
+                if ( !polling )
+                {
+                    WatchKey key = watcher.poll( Math.max( 0, wait ), TimeUnit.NANOSECONDS );
+                    while ( key != null )
+                    {
+                        processKey( key );
+                        // registration may have failed, switching us to polling
+                        key = polling ? null : watcher.poll();
+                    }
+                }
+                else
+                {
+                    if ( wait > 0 )
+                    {
+                        TimeUnit.NANOSECONDS.sleep( wait );
+                    }
+                    if ( System.nanoTime() - nextPoll >= 0 )
+                    {
+                        poll();
+                        nextPoll = System.nanoTime() + pollNanos;
+                    }
+                }
+
+                if ( !pending.isEmpty() && System.nanoTime() - deliverAt >= 0 )
+                {
+                    deliver();
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            // closed
+        }
+        catch ( ClosedWatchServiceException e )
+        {
+            // closed
+        }
+    }
+
+    private void processKey( WatchKey key )
+    {
+        Path dir = keys.get( key );
+        for ( WatchEvent<?> event : key.pollEvents() )
+        {
+            if ( dir == null )
+            {
+                continue;
+            }
+
+            if ( event.kind() == StandardWatchEventKinds.OVERFLOW )
+            {
+                // events were lost, pick up any new directories and let listeners know to look again
+                record( dir, Change.MODIFIED );
+                register( dir, false );
+                continue;
+            }
+
+            Path child = dir.resolve( (Path) event.context() );
+            if ( event.kind() == StandardWatchEventKinds.ENTRY_CREATE )
+            {
+                record( child, Change.CREATED );
+                if ( Files.isDirectory( child, LinkOption.NOFOLLOW_LINKS ) )
+                {
+                    // files may have been added before the new directory was registered
+                    register( child, true );
+                }
+            }
+            else if ( event.kind() == StandardWatchEventKinds.ENTRY_DELETE )
+            {
+                record( child, Change.DELETED );
+            }
+            else if ( !Files.isDirectory( child, LinkOption.NOFOLLOW_LINKS ) )
+            {
+                record( child, Change.MODIFIED );
+            }
+        }
+
+        if ( !key.reset() )
+        {
+            keys.remove( key );
+        }
+    }
+
+    private void register( Path dir, boolean reportCreated )
+    {
+        if ( polling )
+        {
+            return;
+        }
+
+        try
+        {
+            registerAll( dir, reportCreated );
+        }
+        catch ( IOException e )
+        {
+            if ( !Files.exists( dir, LinkOption.NOFOLLOW_LINKS ) )
+            {
+                // removed again already, the delete event will follow
+                return;
+            }
+
+            stopWatching();
+            try
+            {
+                snapshot = scan();
+            }
+            catch ( IOException scanFailed )
+            {
+                snapshot = new HashMap<Path, long[]>();
+            }
+        }
+    }
+
+    private void registerAll( final Path start, final boolean reportCreated )
+        throws IOException
+    {
+        Files.walkFileTree( start, new SimpleFileVisitor<Path>()
+        {
+            public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attributes )
+                throws IOException
+            {
+                WatchKey key = dir.register( watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY );
+                keys.put( key, dir );
+                if ( reportCreated && !dir.equals( start ) )
+                {
+                    record( dir, Change.CREATED );
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attributes )
+            {
+                if ( reportCreated )
+                {
+                    record( file, Change.CREATED );
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+
+    private void stopWatching()
+    {
+        polling = true;
+        IOUtil.close( watcher );
+        keys.clear();
+    }
+
+    private Map<Path, long[]> scan()
+        throws IOException
+    {
+        final Map<Path, long[]> ret = new HashMap<Path, long[]>();
+        Files.walkFileTree( root, new SimpleFileVisitor<Path>()
+        {
+            public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attributes )
+            {
+                // directory times change with their contents, so only track that they exist
+                ret.put( dir, new long[]{ 0, -1 } );
+                return FileVisitResult.CONTINUE;
+            }
+
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attributes )
+            {
+                ret.put( file, new long[]{ attributes.lastModifiedTime().toMillis(), attributes.size() } );
+                return FileVisitResult.CONTINUE;
+            }
+
+            public FileVisitResult visitFileFailed( Path file, IOException e )
+            {
+                // removed whilst we were scanning
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+
+        return ret;
+    }
+
+    private void poll()
+    {
+        Map<Path, long[]> current;
+        try
+        {
+            current = scan();
+        }
+        catch ( IOException e )
+        {
+            // the root could not be read, report everything as removed
+            current = new HashMap<Path, long[]>();
+        }
+
+        for ( Map.Entry<Path, long[]> entry : current.entrySet() )
+        {
+            long[] previous = snapshot.remove( entry.getKey() );
+            if ( previous == null )
+            {
+                record( entry.getKey(), Change.CREATED );
+            }
+            else if ( previous[0] != entry.getValue()[0] || previous[1] != entry.getValue()[1] )
+            {
+                record( entry.getKey(), Change.MODIFIED );
+            }
+        }
+        for ( Path removed : snapshot.keySet() )
+        {
+            record( removed, Change.DELETED );
+        }
+
+        snapshot = current;
+    }
+
+    private void record( Path path, Change change )
+    {
+        long now = System.nanoTime();
+        if ( pending.isEmpty() )
+        {
+            firstChange = now;
+        }
+        // hold back delivery whilst changes continue, but not indefinitely
+        deliverAt = Math.min( now + debounceNanos, firstChange + debounceNanos * MAX_DEBOUNCE_FACTOR );
+
+        Change previous = pending.get( path );
+        if ( previous == null )
+        {
+            pending.put( path, change );
+        }
+        else if ( previous == Change.CREATED )
+        {
+            if ( change == Change.DELETED )
+            {
+                pending.remove( path );
+            }
+        }
+        else if ( previous == Change.DELETED )
+        {
+            pending.put( path, Change.MODIFIED );
+        }
+        else if ( change == Change.DELETED )
+        {
+            pending.put( path, Change.DELETED );
+        }
+    }
+
+    private void deliver()
+    {
+        Set<File> created = new LinkedHashSet<File>();
+        Set<File> modified = new LinkedHashSet<File>();
+        Set<File> deleted = new LinkedHashSet<File>();
+        for ( Map.Entry<Path, Change> entry : pending.entrySet() )
+        {
+            File file = entry.getKey().toFile();
+            switch ( entry.getValue() )
+            {
+                case CREATED:
+                    created.add( file );
+                    break;
+                case MODIFIED:
+                    modified.add( file );
+                    break;
+                default:
+                    deleted.add( file );
+            }
+        }
+        pending.clear();
+
+        final FileChangeSet changes = new FileChangeSet( created, modified, deleted );
+        for ( final FileChangeListener listener : listeners )
+        {
+            executor.execute( new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        listener.filesChanged( changes );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        e.printStackTrace();
+                    }
+                }
+            } );
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends text to a file so that each append is on disk when the call returns, sharing the cost of writing and
+ * syncing between concurrent callers. Whilst one thread is writing, appends from other threads queue up and are then
+ * written and synced together by the next caller, so many small appends cost a handful of writes and syncs
+ * rather than an open, write and close each.
+ *
+ * If a write fails the appender is broken and every subsequent append will fail.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class GroupCommitAppender
+    implements Closeable
+{
+    private FileChannel channel;
+    private Charset charset;
+    private boolean sync;
+
+    private final Object lock = new Object();
+    private List<ByteBuffer> pending = new ArrayList<ByteBuffer>();
+    private long appended, committed;
+    private int waiting;
+    private boolean writing, closed;
+    private IOException failure;
+
+    /**
+     * Open an appender that syncs every batch of appends to disk.
+     *
+     * @param file The file to append to, created if it does not exist
+     * @param charset The character set to encode text with
+     * @throws IOException If the file could not be opened
+     */
+    public GroupCommitAppender( File file, Charset charset )
+        throws IOException
+    {
+        this( file, charset, true );
+    }
+
+    /**
+     * Open an appender.
+     *
+     * @param file The file to append to, created if it does not exist
+     * @param charset The character set to encode text with
+     * @param sync Whether each batch should be forced to the storage device before the appends return
+     * @throws IOException If the file could not be opened
+     */
+    public GroupCommitAppender( File file, Charset charset, boolean sync )
+        throws IOException
+    {
+        this.channel = FileChannel.open( file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND );
+        this.charset = charset;
+        this.sync = sync;
+    }
+
+    /**
+     * Append a line of text followed by "\n".
+     *
+     * @param line The line to append
+     * @throws IOException If the line could not be written
+     */
+    public void appendLine( String line )
+        throws IOException
+    {
+        append( line + '\n' );
+    }
+
+    /**
+     * Append text to the file, returning once it has been written (and synced, if enabled).
+     *
+     * @param text The text to append
+     * @throws InterruptedIOException If interrupted whilst waiting for another thread's write, the text remains
+     *   queued and will be written by that thread, a later append or close
+     * @throws IOException If the text could not be written or the appender is closed
+     */
+    public void append( String text )
+        throws IOException
+    {
+        ByteBuffer data = charset.encode( text );
+
+        synchronized ( lock )
+        {
+            if ( closed )
+            {
+                throw new IOException( "Appender is closed" );
+            }
+
+            pending.add( data );
+            long sequence = ++appended;
+            while ( true )
+            {
+                if ( failure != null )
+                {
+                    throw new IOException( "Appender failed to write", failure );
+                }
+                if ( committed >= sequence )
+                {
+                    return;
+                }
+                if ( !writing )
+                {
+                    break;
+                }
+
+                waiting++;
+                try
+                {
+                    waitForWriter();
+                }
+                finally
+                {
+                    waiting--;
+                }
+            }
+
+            // become the writer for everything queued so far, including our own data
+            writing = true;
+        }
+
+        IOException error = writePending();
+        if ( error != null )
+        {
+            throw error;
+        }
+    }
+
+    /**
+     * Write everything queued, called by the thread that set <code>writing</code>.
+     * Text from appenders that were interrupted whilst waiting has nobody else to write it, so we keep going until
+     * the queue is empty or another appender is waiting to take over.
+     */
+    private IOException writePending()
+    {
+        while ( true )
+        {
+            List<ByteBuffer> batch;
+            long batchEnd;
+            synchronized ( lock )
+            {
+                batch = pending;
+                batchEnd = appended;
+                pending = new ArrayList<ByteBuffer>();
+            }
+
+            IOException error = null;
+            try
+            {
+                write( batch );
+            }
+            catch ( IOException e )
+            {
+                error = e;
+            }
+
+            synchronized ( lock )
+            {
+                if ( error == null )
+                {
+                    committed = batchEnd;
+                }
+                else
+                {
+                    failure = error;
+                }
+
+                if ( error != null || pending.isEmpty() || waiting > 0 )
+                {
+                    writing = false;
+                    lock.notifyAll();
+                    return error;
+                }
+            }
+        }
+    }
+
+    private void write( List<ByteBuffer> batch )
+        throws IOException
+    {
+        ByteBuffer[] buffers = batch.toArray( new ByteBuffer[batch.size()] );
+        int first = 0;
+        while ( first < buffers.length )
+        {
+            channel.write( buffers, first, buffers.length - first );
+            while ( first < buffers.length && !buffers[first].hasRemaining() )
+            {
+                first++;
+            }
+        }
+
+        if ( sync )
+        {
+            channel.force( false );
+        }
+    }
+
+    private void waitForWriter()
+        throws InterruptedIOException
+    {
+        try
+        {
+            lock.wait();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted waiting for append to be written" );
+        }
+    }
+
+    /**
+     * Close the file once any write in progress has completed and everything queued has been written.
+     *
+     * @throws IOException If the queued text could not be written or the file could not be closed
+     */
+    public void close()
+        throws IOException
+    {
+        boolean write;
+        synchronized ( lock )
+        {
+            closed = true;
+            while ( writing )
+            {
+                waitForWriter();
+            }
+
+            write = failure == null && !pending.isEmpty();
+            writing = write;
+        }
+
+        IOException error = write ? writePending() : null;
+        channel.close();
+        if ( error != null )
+        {
+            throw error;
+        }
+    }
+}
@@ -17,7 +17,22 @@
 package org.headsupdev.support.java;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Various utility methods for working with input and output
@@ -27,72 +42,134 @@ import java.nio.charset.Charset;
  */
 public class IOUtil
 {
+    private static final ConcurrentMap<Class<?>, LongAdder> closeFailures =
+            new ConcurrentHashMap<Class<?>, LongAdder>();
+
     /**
      * Close the specified stream without throwing any exceptions.
      * A null stream will be ignored, as will any exceptions thrown when closing the passed stream.
+     * Failures are counted against the stream type, see {@link #getCloseFailures()}.
      *
      * @param in The stream to close
      */
     public static void close( InputStream in )
     {
-        if ( in == null )
-        {
-            return;
-        }
-
-        try
-        {
-            in.close();
-        }
-        catch ( IOException e )
-        {
-            // ignore
-        }
+        closeQuietly( in );
     }
 
     /**
      * Close the specified reader without throwing any exceptions.
      * A null reader will be ignored, as will any exceptions thrown when closing the passed reader.
+     * Failures are counted against the reader type, see {@link #getCloseFailures()}.
      *
      * @param in The reader to close
      */
     public static void close( Reader in )
     {
-        if ( in == null )
-        {
-            return;
-        }
-
-        try
-        {
-            in.close();
-        }
-        catch ( IOException e )
-        {
-            // ignore
-        }
+        closeQuietly( in );
     }
 
     /**
      * Close the specified stream without throwing any exceptions.
      * A null stream will be ignored, as will any exceptions thrown when closing the passed stream.
+     * Failures are counted against the stream type, see {@link #getCloseFailures()}.
      *
      * @param out The stream to close
      */
     public static void close( OutputStream out )
     {
-        if ( out == null )
+        closeQuietly( out );
+    }
+
+    /**
+     * Close the specified resource without throwing any exceptions.
+     * A null resource will be ignored, as will any exceptions thrown when closing the passed resource.
+     * Failures are counted against the resource type, see {@link #getCloseFailures()}.
+     *
+     * @param resource The resource to close
+     */
+    public static void close( Closeable resource )
+    {
+        closeQuietly( resource );
+    }
+
+    /**
+     * Close all of the specified resources, in the reverse of the order they are passed.
+     * Every resource will be closed even if an earlier one fails - the first failure is thrown with any later
+     * failures added to it as suppressed exceptions. Null resources are ignored.
+     *
+     * @param resources The resources to close
+     * @throws IOException If any of the resources failed to close
+     * @see Closer
+     */
+    public static void closeAll( Closeable... resources )
+        throws IOException
+    {
+        Closer closer = new Closer();
+        for ( Closeable resource : resources )
+        {
+            closer.register( resource );
+        }
+
+        closer.close();
+    }
+
+    /**
+     * Get the number of failed closes, keyed by resource class name, since startup or the last reset.
+     * This includes closes that were ignored by the quiet <code>close</code> methods, so that failures such as
+     * an output stream failing to flush on close can be monitored.
+     *
+     * @return A snapshot of the close failure counts, sorted by class name
+     */
+    public static Map<String, Long> getCloseFailures()
+    {
+        Map<String, Long> ret = new TreeMap<String, Long>();
+        for ( Map.Entry<Class<?>, LongAdder> entry : closeFailures.entrySet() )
+        {
+            ret.put( entry.getKey().getName(), entry.getValue().sum() );
+        }
+
+        return ret;
+    }
+
+    /**
+     * Reset all of the close failure counts to zero.
+     */
+    public static void resetCloseFailures()
+    {
+        closeFailures.clear();
+    }
+
+    static void recordCloseFailure( Closeable resource )
+    {
+        LongAdder count = closeFailures.get( resource.getClass() );
+        if ( count == null )
+        {
+            LongAdder created = new LongAdder();
+            count = closeFailures.putIfAbsent( resource.getClass(), created );
+            if ( count == null )
+            {
+                count = created;
+            }
+        }
+
+        count.increment();
+    }
+
+    private static void closeQuietly( Closeable resource )
+    {
+        if ( resource == null )
         {
             return;
         }
 
         try
         {
-            out.close();
+            resource.close();
         }
         catch ( IOException e )
         {
-            // ignore
+            recordCloseFailure( resource );
         }
     }
 
@@ -120,26 +197,148 @@ public class IOUtil
     }
 
     /**
-     * Close the specified writer without throwing any exceptions.
-     * A null writer will be ignored, as will any exceptions thrown when closing the passed writer.
+     * Copy the bytes from one stream to many others, reading each block of the input only once.
+     * For checksums or outputs that should be written on their own thread use a {@link StreamTee} directly.
      *
-     * @param out The writer to close
+     * @param in The stream to read from
+     * @param outs The streams to output to
+     * @return The number of bytes copied
+     * @throws IOException If an exception was encountered whilst reading or writing the streams
      */
-    public static void close( Writer out )
+    public static long teeStream( InputStream in, OutputStream... outs )
+        throws IOException
     {
-        if ( out == null )
+        if ( in == null || outs == null )
+        {
+            return 0;
+        }
+
+        StreamTee tee = new StreamTee();
+        for ( OutputStream out : outs )
+        {
+            if ( out != null )
+            {
+                tee.addOutput( out );
+            }
+        }
+
+        return tee.copy( in );
+    }
+
+    /**
+     * Copy the bytes from one stream to another, compressing them on the way.
+     * The output stream is not closed but the compressed data will be complete when this method returns.
+     *
+     * @param in The stream to read uncompressed data from
+     * @param out The stream to write compressed data to
+     * @param compression The compression format to write
+     * @throws IOException If an exception was encountered whilst reading, compressing or writing the streams
+     */
+    public static void compressStream( InputStream in, OutputStream out, Compression compression )
+        throws IOException
+    {
+        if ( in == null || out == null )
         {
             return;
         }
 
-        try
+        // closing the compressing stream finishes the data and frees the native compressor, but must leave out open
+        OutputStream unclosed = new FilterOutputStream( out )
         {
-            out.close();
+            public void write( byte[] bytes, int offset, int length )
+                throws IOException
+            {
+                out.write( bytes, offset, length );
+            }
+
+            public void close()
+                throws IOException
+            {
+                flush();
+            }
+        };
+        try ( OutputStream compressed = compression.wrap( unclosed ) )
+        {
+            copyStream( in, compressed );
         }
-        catch ( IOException e )
+    }
+
+    /**
+     * Copy the bytes from one stream to another, compressing them to gzip format using all available processors.
+     * This is best suited to large inputs, smaller content will be faster using
+     * <code>compressStream( in, out, Compression.GZIP )</code>.
+     *
+     * @param in The stream to read uncompressed data from
+     * @param out The stream to write gzip data to
+     * @throws IOException If an exception was encountered whilst reading, compressing or writing the streams
+     * @see ParallelGzip
+     */
+    public static void compressStreamParallel( InputStream in, OutputStream out )
+        throws IOException
+    {
+        if ( in == null || out == null )
         {
-            // ignore
+            return;
+        }
+
+        new ParallelGzip().compress( in, out );
+    }
+
+    /**
+     * Copy the bytes from one stream to another, decompressing them if they are in gzip or deflate format.
+     * The format is detected from the first bytes of the input, data that does not look compressed is copied
+     * unchanged.
+     *
+     * @param in The stream to read possibly compressed data from
+     * @param out The stream to write uncompressed data to
+     * @throws IOException If an exception was encountered whilst reading, decompressing or writing the streams
+     */
+    public static void decompressStream( InputStream in, OutputStream out )
+        throws IOException
+    {
+        if ( in == null || out == null )
+        {
+            return;
         }
+
+        copyStream( openDecompressed( in ), out );
+    }
+
+    /**
+     * Wrap a stream so that reads return the uncompressed data if it is in gzip or deflate format.
+     * The format is detected from the first bytes of the input, data that does not look compressed is returned
+     * unchanged.
+     *
+     * @param in The stream to read possibly compressed data from
+     * @return A stream that reads the uncompressed content
+     * @throws IOException If an exception was encountered whilst reading the stream header
+     */
+    public static InputStream openDecompressed( InputStream in )
+        throws IOException
+    {
+        PushbackInputStream buffered = new PushbackInputStream( in, Compression.HEADER_LENGTH );
+        byte[] header = new byte[Compression.HEADER_LENGTH];
+        int length = 0;
+        int read;
+        while ( length < header.length && ( read = buffered.read( header, length, header.length - length ) ) > -1 )
+        {
+            length += read;
+        }
+        buffered.unread( header, 0, length );
+
+        return Compression.detect( header, length ).wrap( buffered );
+    }
+
+    /**
+     * Close the specified writer without throwing any exceptions.
+     * A null writer will be ignored, as will any exceptions thrown when closing the passed writer.
+     * Failures are counted against the writer type, see {@link #getCloseFailures()}.
+     *
+     * @param out The writer to close
+     */
+    public static void close( Writer out )
+    {
+        closeQuietly( out );
     }
 
     /**
@@ -190,6 +389,198 @@ public class IOUtil
         return IOUtil.toString( new BufferedReader( in ), limit );
     }
 
+    /**
+     * Decode the contents of the given buffer to a string, such as a buffer returned by
+     * <code>FileUtil.mapReadOnly</code>. As with the other <code>toString</code> methods line endings are
+     * normalised to "\n" and the last line is always terminated.
+     * The buffer is decoded from its position to its limit, and its position will be moved to the limit.
+     *
+     * @param buffer The bytes to decode
+     * @param charset The character set to decode with - malformed input is replaced rather than reported
+     * @return A string representation of the contents
+     */
+    public static String toString( ByteBuffer buffer, Charset charset )
+    {
+        CharBuffer chars;
+        try
+        {
+            chars = charset.newDecoder().onMalformedInput( CodingErrorAction.REPLACE )
+                    .onUnmappableCharacter( CodingErrorAction.REPLACE ).decode( buffer );
+        }
+        catch ( CharacterCodingException e )
+        {
+            // not thrown when replacing errors
+            throw new IllegalStateException( e );
+        }
+
+        return normaliseLines( chars );
+    }
+
+    private static String normaliseLines( CharBuffer chars )
+    {
+        int length = chars.remaining();
+        if ( length == 0 )
+        {
+            return "";
+        }
+
+        char[] in = chars.array();
+        int offset = chars.arrayOffset() + chars.position();
+        int firstReturn = -1;
+        for ( int i = offset; i < offset + length; i++ )
+        {
+            if ( in[i] == '\r' )
+            {
+                firstReturn = i;
+                break;
+            }
+        }
+
+        if ( firstReturn == -1 )
+        {
+            if ( in[offset + length - 1] == '\n' )
+            {
+                return new String( in, offset, length );
+            }
+
+            char[] terminated = Arrays.copyOfRange( in, offset, offset + length + 1 );
+            terminated[length] = '\n';
+            return new String( terminated );
+        }
+
+        char[] out = new char[length + 1];
+        int count = firstReturn - offset;
+        System.arraycopy( in, offset, out, 0, count );
+        for ( int i = firstReturn; i < offset + length; i++ )
+        {
+            char c = in[i];
+            if ( c == '\r' )
+            {
+                out[count++] = '\n';
+                if ( i + 1 < offset + length && in[i + 1] == '\n' )
+                {
+                    i++;
+                }
+            }
+            else
+            {
+                out[count++] = c;
+            }
+        }
+
+        if ( out[count - 1] != '\n' )
+        {
+            out[count++] = '\n';
+        }
+        return new String( out, 0, count );
+    }
+
+    /**
+     * Pass each line of the given stream to a handler, closing the stream once all lines have been read.
+     * The line passed to the handler is reused for each line so no per-line String is created -
+     * handlers that need to keep a line should call <code>toString()</code> on it.
+     *
+     * @param in The stream to read
+     * @param charset The character set to decode the stream with
+     * @param handler The handler to receive each line, without line terminators
+     * @throws IOException If the stream could not be read or the handler threw an exception
+     */
+    public static void forEachLine( InputStream in, Charset charset, LineHandler handler )
+        throws IOException
+    {
+        forEachLine( new InputStreamReader( in, charset ), handler );
+    }
+
+    /**
+     * Pass each line of the given reader to a handler, closing the reader once all lines have been read.
+     * The line passed to the handler is reused for each line so no per-line String is created -
+     * handlers that need to keep a line should call <code>toString()</code> on it.
+     *
+     * @param in The reader to read
+     * @param handler The handler to receive each line, without line terminators
+     * @throws IOException If the reader could not be read or the handler threw an exception
+     */
+    public static void forEachLine( Reader in, LineHandler handler )
+        throws IOException
+    {
+        LineReader reader = new LineReader( in );
+        try
+        {
+            CharSequence line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                handler.handleLine( line );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * Get a lazily populated stream of the lines in the given input stream.
+     * The returned stream should be closed to release the input, ideally using a try-with-resources block.
+     * Each element is a view onto a buffer that is reused for the next line, so callers that collect or sort lines
+     * must call <code>toString()</code> on them first.
+     * Any exception encountered whilst reading will be thrown as an <code>UncheckedIOException</code>.
+     *
+     * @param in The stream to read
+     * @param charset The character set to decode the stream with
+     * @return A stream of the lines in the input, without line terminators
+     */
+    public static Stream<CharSequence> lines( InputStream in, Charset charset )
+    {
+        return lines( new InputStreamReader( in, charset ) );
+    }
+
+    /**
+     * Get a lazily populated stream of the lines in the given reader.
+     * The returned stream should be closed to release the reader, ideally using a try-with-resources block.
+     * Each element is a view onto a buffer that is reused for the next line, so callers that collect or sort lines
+     * must call <code>toString()</code> on them first.
+     * Any exception encountered whilst reading will be thrown as an <code>UncheckedIOException</code>.
+     *
+     * @param in The reader to read
+     * @return A stream of the lines in the input, without line terminators
+     */
+    public static Stream<CharSequence> lines( final Reader in )
+    {
+        final LineReader reader = new LineReader( in );
+        Spliterator<CharSequence> lines = new Spliterators.AbstractSpliterator<CharSequence>( Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL )
+        {
+            public boolean tryAdvance( Consumer<? super CharSequence> action )
+            {
+                CharSequence line;
+                try
+                {
+                    line = reader.readLine();
+                }
+                catch ( IOException e )
+                {
+                    throw new UncheckedIOException( e );
+                }
+
+                if ( line == null )
+                {
+                    return false;
+                }
+
+                action.accept( line );
+                return true;
+            }
+        };
+
+        return StreamSupport.stream( lines, false ).onClose( new Runnable()
+        {
+            public void run()
+            {
+                IOUtil.close( in );
+            }
+        } );
+    }
+
     private static String toString( BufferedReader in, long limit )
     {
         StringBuffer out = new StringBuffer();
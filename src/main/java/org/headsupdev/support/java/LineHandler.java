@@ -0,0 +1,42 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.IOException;
+
+/**
+ * A callback for processing content one line at a time, as used by <code>IOUtil.forEachLine</code>.
+ *
+ * The line passed to the handler is a view onto a buffer that is reused for the next line, so it is only valid
+ * for the duration of the call. Handlers that wish to keep a line must call <code>toString()</code> on it.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public interface LineHandler
+{
+    /**
+     * Handle a single line of content. The line does not contain the line terminator.
+     *
+     * @param line The content of the current line, only valid until this method returns
+     * @throws IOException If the handler failed and reading should stop
+     */
+    void handleLine( CharSequence line )
+            throws IOException;
+}
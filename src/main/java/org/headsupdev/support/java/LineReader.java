@@ -0,0 +1,179 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads lines from a reader into a single reusable buffer. Lines are terminated by "\n", "\r" or "\r\n" in the
+ * same way as <code>BufferedReader.readLine()</code>, but no String is created for each line.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+class LineReader
+    implements Closeable
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    private Reader in;
+
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int position, count;
+    private boolean skipLF, eof;
+
+    private LineBuffer line = new LineBuffer();
+
+    public LineReader( Reader in )
+    {
+        this.in = in;
+    }
+
+    /**
+     * Read the next line into the shared line buffer.
+     *
+     * @return The line that was read, or null if the end of the content was reached
+     * @throws IOException If the underlying reader could not be read
+     */
+    public CharSequence readLine()
+            throws IOException
+    {
+        line.length = 0;
+        boolean found = false;
+
+        while ( true )
+        {
+            if ( position >= count )
+            {
+                if ( eof || !fill() )
+                {
+                    return found ? line : null;
+                }
+            }
+
+            if ( skipLF )
+            {
+                skipLF = false;
+                if ( buffer[position] == '\n' )
+                {
+                    position++;
+                    continue;
+                }
+            }
+            found = true;
+
+            int start = position;
+            while ( position < count )
+            {
+                char c = buffer[position];
+                if ( c == '\n' || c == '\r' )
+                {
+                    line.append( buffer, start, position - start );
+                    position++;
+                    skipLF = c == '\r';
+                    return line;
+                }
+                position++;
+            }
+
+            line.append( buffer, start, position - start );
+        }
+    }
+
+    private boolean fill()
+            throws IOException
+    {
+        int read;
+        do
+        {
+            read = in.read( buffer, 0, buffer.length );
+        }
+        while ( read == 0 );
+
+        if ( read < 0 )
+        {
+            eof = true;
+            return false;
+        }
+
+        position = 0;
+        count = read;
+        return true;
+    }
+
+    public void close()
+            throws IOException
+    {
+        in.close();
+    }
+
+    /**
+     * A growable character buffer that is exposed as the current line.
+     */
+    static class LineBuffer
+        implements CharSequence
+    {
+        private char[] chars = new char[128];
+        private int length;
+
+        void append( char[] source, int offset, int len )
+        {
+            if ( length + len > chars.length )
+            {
+                chars = Arrays.copyOf( chars, Math.max( chars.length * 2, length + len ) );
+            }
+
+            System.arraycopy( source, offset, chars, length, len );
+            length += len;
+        }
+
+        public int length()
+        {
+            return length;
+        }
+
+        public char charAt( int index )
+        {
+            if ( index < 0 || index >= length )
+            {
+                throw new IndexOutOfBoundsException( "Index: " + index + ", length: " + length );
+            }
+
+            return chars[index];
+        }
+
+        public CharSequence subSequence( int start, int end )
+        {
+            if ( start < 0 || end > length || start > end )
+            {
+                throw new IndexOutOfBoundsException( "Range: " + start + "-" + end + ", length: " + length );
+            }
+
+            return new String( chars, start, end - start );
+        }
+
+        public String toString()
+        {
+            return new String( chars, 0, length );
+        }
+    }
+}
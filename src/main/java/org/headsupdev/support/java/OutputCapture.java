@@ -0,0 +1,298 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * An OutputStream for capturing command output with bounded memory use. The first bytes written are kept as the
+ * head and the most recent bytes are kept in a ring buffer as the tail, so a noisy command cannot fill the heap.
+ *
+ * If a spill threshold is set then the full output is also kept: in memory until it passes the threshold and then
+ * in a temporary file, which can be read back with {@link #openFullOutput()}. Call {@link #discard()} to remove the
+ * file once it is no longer needed.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class OutputCapture
+    extends OutputStream
+{
+    public static final int DEFAULT_HEAD_BYTES = 64 * 1024;
+    public static final int DEFAULT_TAIL_BYTES = 64 * 1024;
+
+    private byte[] head, tail;
+    private int headCount, tailPosition;
+    private long total;
+
+    private long spillThreshold = -1;
+    private File spillDir;
+    private ByteArrayOutputStream memory;
+    private File spillFile;
+    private OutputStream spill;
+
+    /**
+     * Capture the first and last 64K of output.
+     */
+    public OutputCapture()
+    {
+        this( DEFAULT_HEAD_BYTES, DEFAULT_TAIL_BYTES );
+    }
+
+    /**
+     * Capture the first and last parts of the output.
+     *
+     * @param headBytes The number of bytes to keep from the start of the output
+     * @param tailBytes The number of bytes to keep from the end of the output
+     */
+    public OutputCapture( int headBytes, int tailBytes )
+    {
+        this.head = new byte[headBytes];
+        this.tail = new byte[tailBytes];
+    }
+
+    /**
+     * Keep the full output as well as the head and tail, holding up to the threshold in memory before moving it to
+     * a temporary file. This must be set before anything is written.
+     *
+     * @param threshold The most bytes to hold in memory before spilling to disk
+     * @param dir The directory for the temporary file, or null for the system temp directory
+     * @return this capture, for chaining calls
+     */
+    public synchronized OutputCapture setSpillThreshold( long threshold, File dir )
+    {
+        if ( total > 0 )
+        {
+            throw new IllegalStateException( "Output has already been written" );
+        }
+
+        this.spillThreshold = threshold;
+        this.spillDir = dir;
+        this.memory = new ByteArrayOutputStream( (int) Math.min( threshold, 64 * 1024 ) );
+        return this;
+    }
+
+    public void write( int b )
+        throws IOException
+    {
+        write( new byte[]{ (byte) b }, 0, 1 );
+    }
+
+    public synchronized void write( byte[] b, int off, int len )
+        throws IOException
+    {
+        if ( headCount < head.length )
+        {
+            int count = Math.min( len, head.length - headCount );
+            System.arraycopy( b, off, head, headCount, count );
+            headCount += count;
+        }
+
+        writeTail( b, off, len );
+        total += len;
+
+        if ( spill != null )
+        {
+            spill.write( b, off, len );
+        }
+        else if ( memory != null )
+        {
+            memory.write( b, off, len );
+            if ( memory.size() > spillThreshold )
+            {
+                spillFile = File.createTempFile( "output", ".tmp", spillDir );
+                spill = new FileOutputStream( spillFile );
+                memory.writeTo( spill );
+                memory = null;
+            }
+        }
+    }
+
+    private void writeTail( byte[] b, int off, int len )
+    {
+        if ( tail.length == 0 )
+        {
+            return;
+        }
+        if ( len >= tail.length )
+        {
+            System.arraycopy( b, off + len - tail.length, tail, 0, tail.length );
+            tailPosition = 0;
+            return;
+        }
+
+        int first = Math.min( len, tail.length - tailPosition );
+        System.arraycopy( b, off, tail, tailPosition, first );
+        System.arraycopy( b, off + first, tail, 0, len - first );
+        tailPosition = ( tailPosition + len ) % tail.length;
+    }
+
+    public synchronized void flush()
+        throws IOException
+    {
+        if ( spill != null )
+        {
+            spill.flush();
+        }
+    }
+
+    /**
+     * Finish writing to the temporary file, if any. The captured output remains available.
+     *
+     * @throws IOException If the temporary file could not be closed
+     */
+    public synchronized void close()
+        throws IOException
+    {
+        if ( spill != null )
+        {
+            spill.close();
+        }
+    }
+
+    /**
+     * @return The total number of bytes written
+     */
+    public synchronized long getByteCount()
+    {
+        return total;
+    }
+
+    /**
+     * @return true if the head and tail do not hold the whole of the output
+     */
+    public synchronized boolean isTruncated()
+    {
+        return total > head.length + tail.length;
+    }
+
+    /**
+     * @return true if the full output passed the spill threshold and is held in a temporary file
+     */
+    public synchronized boolean isSpilled()
+    {
+        return spillFile != null;
+    }
+
+    /**
+     * @return The first bytes written, up to the head size
+     */
+    public synchronized byte[] getHead()
+    {
+        return Arrays.copyOf( head, headCount );
+    }
+
+    /**
+     * @return The last bytes written, up to the tail size. If the output fits in the head this overlaps with it.
+     */
+    public synchronized byte[] getTail()
+    {
+        int count = (int) Math.min( total, tail.length );
+        byte[] ret = new byte[count];
+        int start = ( tailPosition - count + tail.length ) % Math.max( 1, tail.length );
+        int first = Math.min( count, tail.length - start );
+        System.arraycopy( tail, start, ret, 0, first );
+        System.arraycopy( tail, 0, ret, first, count - first );
+        return ret;
+    }
+
+    /**
+     * Get the captured output as text. If the output was truncated the head and tail are separated by a line noting
+     * how many bytes were left out.
+     *
+     * @param charset The character set to decode with
+     * @return The head and tail of the output, or all of it if it was not truncated
+     */
+    public synchronized String toString( Charset charset )
+    {
+        if ( total <= head.length )
+        {
+            return new String( head, 0, headCount, charset );
+        }
+        if ( !isTruncated() )
+        {
+            byte[] tailBytes = getTail();
+            int overlap = (int) ( head.length + tailBytes.length - total );
+            return new String( head, 0, headCount, charset ) +
+                    new String( tailBytes, overlap, tailBytes.length - overlap, charset );
+        }
+
+        long omitted = total - head.length - tail.length;
+        return new String( head, 0, headCount, charset ) + "\n... " + omitted + " bytes omitted ...\n" +
+                new String( getTail(), charset );
+    }
+
+    public String toString()
+    {
+        return toString( Charset.defaultCharset() );
+    }
+
+    /**
+     * Read back the full output. This requires a spill threshold to have been set, or the output to fit in the head.
+     *
+     * @return A stream of everything that was written
+     * @throws IOException If the full output was not kept or the temporary file could not be read
+     */
+    public synchronized InputStream openFullOutput()
+        throws IOException
+    {
+        if ( spill != null )
+        {
+            spill.flush();
+            return new FileInputStream( spillFile );
+        }
+        if ( memory != null )
+        {
+            return new ByteArrayInputStream( memory.toByteArray() );
+        }
+        if ( total <= head.length )
+        {
+            return new ByteArrayInputStream( head, 0, headCount );
+        }
+
+        throw new IOException( "The full output was not kept, set a spill threshold to keep it" );
+    }
+
+    /**
+     * Remove the temporary file, if the output was spilled. The full output can no longer be read afterwards.
+     */
+    public synchronized void discard()
+    {
+        IOUtil.close( spill );
+        spill = null;
+        memory = null;
+        if ( spillFile != null )
+        {
+            if ( !spillFile.delete() )
+            {
+                spillFile.deleteOnExit();
+            }
+            spillFile = null;
+        }
+    }
+}
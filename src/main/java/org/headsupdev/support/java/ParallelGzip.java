@@ -0,0 +1,260 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip compression that uses many cores, in the style of pigz.
+ * The input is split into blocks that are deflated independently, each primed with the end of the previous block
+ * as a dictionary, and the results are concatenated into a single standard gzip member.
+ * The output can be read by <code>GZIPInputStream</code> or any gzip tool.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ParallelGzip
+{
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private int threads, blockSize, level;
+
+    /**
+     * Create a compressor using all available processors and the default block size and compression level.
+     */
+    public ParallelGzip()
+    {
+        this( Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION );
+    }
+
+    /**
+     * Create a compressor with specific settings.
+     *
+     * @param threads The number of threads to compress with
+     * @param blockSize The number of input bytes compressed by each task
+     * @param level The deflate compression level, 0-9 or <code>Deflater.DEFAULT_COMPRESSION</code>
+     */
+    public ParallelGzip( int threads, int blockSize, int level )
+    {
+        if ( threads <= 0 || blockSize <= 0 )
+        {
+            throw new IllegalArgumentException( "Thread count and block size must be positive" );
+        }
+
+        this.threads = threads;
+        this.blockSize = blockSize;
+        this.level = level;
+    }
+
+    /**
+     * Compress all of the input into gzip format on the output. Neither stream is closed.
+     *
+     * @param in The stream to read uncompressed data from
+     * @param out The stream to write gzip data to
+     * @return The number of uncompressed bytes read
+     * @throws IOException If the input could not be read or the output written
+     */
+    public long compress( InputStream in, OutputStream out )
+        throws IOException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool( threads, new ThreadFactory()
+        {
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "ParallelGzip worker" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+        try
+        {
+            return compress( in, out, pool );
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    private long compress( InputStream in, OutputStream out, ExecutorService pool )
+        throws IOException
+    {
+        out.write( HEADER );
+
+        CRC32 crc = new CRC32();
+        long total = 0;
+        Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+        byte[] previous = null;
+        while ( true )
+        {
+            byte[] block = readBlock( in );
+            if ( block == null )
+            {
+                break;
+            }
+
+            crc.update( block, 0, block.length );
+            total += block.length;
+            pending.add( pool.submit( new BlockTask( block, previous, false ) ) );
+            previous = block;
+
+            // bound the memory used by limiting how far ahead of the writer we read
+            while ( pending.size() >= threads * 2 )
+            {
+                out.write( await( pending.poll() ) );
+            }
+        }
+
+        pending.add( pool.submit( new BlockTask( new byte[0], null, true ) ) );
+        while ( !pending.isEmpty() )
+        {
+            out.write( await( pending.poll() ) );
+        }
+
+        writeInt( out, (int) crc.getValue() );
+        writeInt( out, (int) total );
+        out.flush();
+
+        return total;
+    }
+
+    private byte[] readBlock( InputStream in )
+        throws IOException
+    {
+        byte[] block = new byte[blockSize];
+        int filled = 0;
+        int read;
+        while ( filled < blockSize && ( read = in.read( block, filled, blockSize - filled ) ) > -1 )
+        {
+            filled += read;
+        }
+
+        if ( filled == 0 )
+        {
+            return null;
+        }
+
+        return filled == blockSize ? block : Arrays.copyOf( block, filled );
+    }
+
+    private static byte[] await( Future<byte[]> future )
+        throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted waiting for compression" );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new IOException( "Failed to compress block", e.getCause() );
+        }
+    }
+
+    private static void writeInt( OutputStream out, int value )
+        throws IOException
+    {
+        out.write( value & 0xff );
+        out.write( ( value >> 8 ) & 0xff );
+        out.write( ( value >> 16 ) & 0xff );
+        out.write( ( value >> 24 ) & 0xff );
+    }
+
+    /**
+     * Deflates a single block to raw deflate data, ending on a byte boundary so blocks can be concatenated.
+     */
+    class BlockTask
+        implements Callable<byte[]>
+    {
+        private byte[] block, dictionary;
+        private boolean last;
+
+        BlockTask( byte[] block, byte[] dictionary, boolean last )
+        {
+            this.block = block;
+            this.dictionary = dictionary;
+            this.last = last;
+        }
+
+        public byte[] call()
+        {
+            Deflater deflater = new Deflater( level, true );
+            try
+            {
+                if ( dictionary != null )
+                {
+                    int length = Math.min( DICTIONARY_SIZE, dictionary.length );
+                    deflater.setDictionary( dictionary, dictionary.length - length, length );
+                }
+                deflater.setInput( block );
+
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream( block.length / 2 + 64 );
+                byte[] buffer = new byte[16 * 1024];
+                if ( last )
+                {
+                    deflater.finish();
+                    while ( !deflater.finished() )
+                    {
+                        int written = deflater.deflate( buffer );
+                        compressed.write( buffer, 0, written );
+                    }
+                }
+                else
+                {
+                    int written;
+                    do
+                    {
+                        written = deflater.deflate( buffer, 0, buffer.length, Deflater.SYNC_FLUSH );
+                        compressed.write( buffer, 0, written );
+                    }
+                    while ( written == buffer.length );
+                }
+
+                return compressed.toByteArray();
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+    }
+}
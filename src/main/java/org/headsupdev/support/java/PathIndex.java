@@ -0,0 +1,229 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An index of the files found in each directory of a search path, such as the OS's PATH.
+ * The directories are listed once and lookups are then answered from a map. The index is rebuilt when the path
+ * changes or when any of the directories has been modified, which is checked at most once per check interval.
+ * Where a name appears in more than one directory the first directory in the path wins, as with a shell.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class PathIndex
+{
+    public static final long DEFAULT_CHECK_INTERVAL_MILLIS = 1000;
+
+    private static final PathIndex DEFAULT = new PathIndex( null );
+
+    private final String fixedPath;
+    private volatile long checkIntervalMillis = DEFAULT_CHECK_INTERVAL_MILLIS;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Get the shared index of the OS's PATH environment variable.
+     *
+     * @return The index of the PATH directories
+     */
+    public static PathIndex getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Create an index of a specific search path.
+     *
+     * @param path The directories to index, separated by <code>File.pathSeparator</code>.
+     *   Pass null to follow the OS's PATH environment variable.
+     */
+    public PathIndex( String path )
+    {
+        this.fixedPath = path;
+    }
+
+    /**
+     * Set how often the path directories are checked for modifications. Zero checks on every lookup.
+     *
+     * @param time The time between checks
+     * @param unit The unit of the time parameter
+     * @return this index, for chaining calls
+     */
+    public PathIndex setCheckInterval( long time, TimeUnit unit )
+    {
+        this.checkIntervalMillis = unit.toMillis( time );
+        return this;
+    }
+
+    /**
+     * Lookup a file in the path.
+     *
+     * @param filename The filename that we wish to find on the path
+     * @return The full path to the file, if found. If nothing matched then we return null.
+     */
+    public File lookup( String filename )
+    {
+        if ( filename.indexOf( '/' ) != -1 || filename.indexOf( File.separatorChar ) != -1 )
+        {
+            // names with directories are not indexed, so just check each path entry
+            for ( File dir : current().dirs )
+            {
+                File ret = new File( dir, filename );
+                if ( ret.exists() )
+                {
+                    return ret;
+                }
+            }
+
+            return null;
+        }
+
+        return current().files.get( filename );
+    }
+
+    /**
+     * Lookup many files in the path at once.
+     *
+     * @param filenames The filenames that we wish to find on the path
+     * @return A map of each filename to its full path, or to null if it was not found, in the order requested
+     */
+    public Map<String, File> lookupAll( Collection<String> filenames )
+    {
+        Map<String, File> ret = new LinkedHashMap<String, File>();
+        for ( String filename : filenames )
+        {
+            ret.put( filename, lookup( filename ) );
+        }
+
+        return ret;
+    }
+
+    /**
+     * Discard the current index so that it is rebuilt on the next lookup.
+     */
+    public void invalidate()
+    {
+        snapshot = null;
+    }
+
+    private Snapshot current()
+    {
+        String path = fixedPath == null ? System.getenv( "PATH" ) : fixedPath;
+        Snapshot ret = snapshot;
+        if ( ret != null && ret.isValid( path, checkIntervalMillis ) )
+        {
+            return ret;
+        }
+
+        synchronized ( this )
+        {
+            ret = snapshot;
+            if ( ret == null || !ret.isValid( path, checkIntervalMillis ) )
+            {
+                ret = new Snapshot( path );
+                snapshot = ret;
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * An immutable listing of the path directories, with their modification times when listed.
+     */
+    static class Snapshot
+    {
+        private final String path;
+        private final List<File> dirs = new ArrayList<File>();
+        private final long[] modified;
+        private final Map<String, File> files = new HashMap<String, File>();
+        private volatile long checked;
+
+        Snapshot( String path )
+        {
+            this.path = path;
+            if ( path != null )
+            {
+                for ( String entry : path.split( File.pathSeparator ) )
+                {
+                    if ( entry.length() > 0 )
+                    {
+                        dirs.add( new File( entry ) );
+                    }
+                }
+            }
+
+            modified = new long[dirs.size()];
+            for ( int i = 0; i < dirs.size(); i++ )
+            {
+                File dir = dirs.get( i );
+                // read the time before listing so a change during the listing will cause a rebuild
+                modified[i] = dir.lastModified();
+
+                String[] names = dir.list();
+                if ( names == null )
+                {
+                    continue;
+                }
+                for ( String name : names )
+                {
+                    if ( !files.containsKey( name ) )
+                    {
+                        files.put( name, new File( dir, name ) );
+                    }
+                }
+            }
+            checked = System.currentTimeMillis();
+        }
+
+        boolean isValid( String currentPath, long checkIntervalMillis )
+        {
+            if ( currentPath == null ? path != null : !currentPath.equals( path ) )
+            {
+                return false;
+            }
+
+            long now = System.currentTimeMillis();
+            if ( now - checked < checkIntervalMillis )
+            {
+                return true;
+            }
+
+            for ( int i = 0; i < dirs.size(); i++ )
+            {
+                if ( dirs.get( i ).lastModified() != modified[i] )
+                {
+                    return false;
+                }
+            }
+            checked = now;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+/**
+ * Receives partial results whilst <code>FileUtil.scanTree</code> walks a large tree.
+ * Calls are made from the scanning threads, so implementations should return quickly.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public interface ScanListener
+{
+    /**
+     * Called periodically with the totals gathered so far.
+     *
+     * @param partial A snapshot of the scan, <code>isComplete()</code> will return false
+     */
+    void scanProgress( ScanResult partial );
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings for <code>FileUtil.scanTree</code>. The defaults do not follow symbolic links, keep the 10 largest files
+ * and group file ages into an hour, a day, a week, 30 days and a year.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ScanOptions
+{
+    public static final long[] DEFAULT_AGE_BUCKETS = { TimeUnit.HOURS.toMillis( 1 ), TimeUnit.DAYS.toMillis( 1 ),
+            TimeUnit.DAYS.toMillis( 7 ), TimeUnit.DAYS.toMillis( 30 ), TimeUnit.DAYS.toMillis( 365 ) };
+
+    private boolean followLinks;
+    private int largestFileCount = 10;
+    private long[] ageBuckets = DEFAULT_AGE_BUCKETS;
+    private ScanListener listener;
+    private long progressMillis = 1000;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    public boolean isFollowLinks()
+    {
+        return followLinks;
+    }
+
+    /**
+     * Set whether symbolic links are followed. Each directory is only scanned once, so links that point back up the
+     * tree, or to a directory that has already been scanned, are not followed again.
+     *
+     * @param followLinks true to scan the targets of symbolic links
+     * @return these options, for chaining calls
+     */
+    public ScanOptions setFollowLinks( boolean followLinks )
+    {
+        this.followLinks = followLinks;
+        return this;
+    }
+
+    public int getLargestFileCount()
+    {
+        return largestFileCount;
+    }
+
+    /**
+     * Set how many of the largest files should be reported. Zero disables tracking the largest files.
+     *
+     * @param count The number of files to report
+     * @return these options, for chaining calls
+     */
+    public ScanOptions setLargestFileCount( int count )
+    {
+        this.largestFileCount = count;
+        return this;
+    }
+
+    public long[] getAgeBuckets()
+    {
+        return ageBuckets;
+    }
+
+    /**
+     * Set the upper bounds of the file age histogram. Files are counted in the first bucket that is older than they
+     * are, with an extra bucket for files older than the last bound.
+     *
+     * @param maxAgeMillis The bucket bounds in ascending order
+     * @return these options, for chaining calls
+     */
+    public ScanOptions setAgeBuckets( long... maxAgeMillis )
+    {
+        this.ageBuckets = maxAgeMillis.clone();
+        return this;
+    }
+
+    public ScanListener getListener()
+    {
+        return listener;
+    }
+
+    /**
+     * Set a listener to be sent partial results as the scan progresses.
+     *
+     * @param listener The listener to notify, or null for none
+     * @param time The minimum time between notifications
+     * @param unit The unit of the time parameter
+     * @return these options, for chaining calls
+     */
+    public ScanOptions setListener( ScanListener listener, long time, TimeUnit unit )
+    {
+        this.listener = listener;
+        this.progressMillis = unit.toMillis( time );
+        return this;
+    }
+
+    public long getProgressMillis()
+    {
+        return progressMillis;
+    }
+
+    public ForkJoinPool getPool()
+    {
+        return pool;
+    }
+
+    /**
+     * Set the pool that scan tasks run on. Defaults to the common fork/join pool.
+     *
+     * @param pool The pool to scan with
+     * @return these options, for chaining calls
+     */
+    public ScanOptions setPool( ForkJoinPool pool )
+    {
+        this.pool = pool;
+        return this;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A summary of a directory tree produced by <code>FileUtil.scanTree</code>.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ScanResult
+{
+    private long files, directories, links, bytes;
+    private List<FileSize> largest;
+    private long[] ageBuckets, ageFiles, ageBytes;
+    private List<IOException> failures;
+    private long failureCount;
+    private boolean complete;
+
+    ScanResult( long files, long directories, long links, long bytes, List<FileSize> largest, long[] ageBuckets,
+                long[] ageFiles, long[] ageBytes, List<IOException> failures, long failureCount, boolean complete )
+    {
+        this.files = files;
+        this.directories = directories;
+        this.links = links;
+        this.bytes = bytes;
+        this.largest = Collections.unmodifiableList( largest );
+        this.ageBuckets = ageBuckets;
+        this.ageFiles = ageFiles;
+        this.ageBytes = ageBytes;
+        this.failures = Collections.unmodifiableList( failures );
+        this.failureCount = failureCount;
+        this.complete = complete;
+    }
+
+    /**
+     * @return The number of regular files, and other non-directories, found
+     */
+    public long getFileCount()
+    {
+        return files;
+    }
+
+    /**
+     * @return The number of directories found, including the root
+     */
+    public long getDirectoryCount()
+    {
+        return directories;
+    }
+
+    /**
+     * @return The number of symbolic links found that were not scanned through. When links are followed a link is
+     *   counted as the file or directory it points to, so only links to directories that were already scanned are
+     *   counted here
+     */
+    public long getLinkCount()
+    {
+        return links;
+    }
+
+    /**
+     * @return The total size of the files found
+     */
+    public long getByteCount()
+    {
+        return bytes;
+    }
+
+    /**
+     * @return The largest files found, biggest first
+     */
+    public List<FileSize> getLargestFiles()
+    {
+        return largest;
+    }
+
+    /**
+     * @return The upper bounds, in milliseconds, of each age histogram bucket but the last
+     */
+    public long[] getAgeBuckets()
+    {
+        return ageBuckets.clone();
+    }
+
+    /**
+     * @return The number of files in each age bucket, with an extra last entry for files older than all the bounds
+     */
+    public long[] getAgeFileCounts()
+    {
+        return ageFiles.clone();
+    }
+
+    /**
+     * @return The size of the files in each age bucket, with an extra last entry for files older than all the bounds
+     */
+    public long[] getAgeByteCounts()
+    {
+        return ageBytes.clone();
+    }
+
+    /**
+     * @return The number of paths that could not be read
+     */
+    public long getFailureCount()
+    {
+        return failureCount;
+    }
+
+    /**
+     * @return The errors for the first 100 paths that could not be read
+     */
+    public List<IOException> getFailures()
+    {
+        return failures;
+    }
+
+    /**
+     * @return false if this is a partial result sent to a <code>ScanListener</code> part way through the scan
+     */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    public String toString()
+    {
+        return "Found " + files + " files (" + bytes + " bytes) in " + directories + " directories" +
+                ( failureCount > 0 ? ", " + failureCount + " failures" : "" );
+    }
+
+    /**
+     * A file and its size
+     */
+    public static class FileSize
+    {
+        private File file;
+        private long size;
+
+        FileSize( File file, long size )
+        {
+            this.file = file;
+            this.size = size;
+        }
+
+        public File getFile()
+        {
+            return file;
+        }
+
+        public long getSize()
+        {
+            return size;
+        }
+
+        public String toString()
+        {
+            return file.getPath() + " (" + size + " bytes)";
+        }
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Checksum;
+
+/**
+ * Copy a single input to many outputs, reading each block of the input only once.
+ * Checksums and message digests can be calculated in the same pass and slow outputs can be written on their own
+ * thread through a bounded buffer so they do not hold up the other outputs.
+ *
+ * Outputs are not closed by this class. A tee can be reused for subsequent copies, but must not be used
+ * for more than one copy at a time.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class StreamTee
+{
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    public static final int DEFAULT_ASYNC_BLOCKS = 16;
+
+    private int blockSize;
+
+    private List<OutputStream> outputs = new ArrayList<OutputStream>();
+    private List<WritableByteChannel> channels = new ArrayList<WritableByteChannel>();
+    private List<Checksum> checksums = new ArrayList<Checksum>();
+    private List<MessageDigest> digests = new ArrayList<MessageDigest>();
+    private List<AsyncOutput> asyncOutputs = new ArrayList<AsyncOutput>();
+
+    public StreamTee()
+    {
+        this( DEFAULT_BLOCK_SIZE );
+    }
+
+    /**
+     * Create a tee that reads the input in blocks of the given size.
+     *
+     * @param blockSize The number of bytes to read from the input at a time
+     */
+    public StreamTee( int blockSize )
+    {
+        if ( blockSize <= 0 )
+        {
+            throw new IllegalArgumentException( "Block size must be positive" );
+        }
+
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Add an output stream that will be written to on the copying thread.
+     *
+     * @param out The stream to write to
+     * @return this tee, for chaining calls
+     */
+    public StreamTee addOutput( OutputStream out )
+    {
+        outputs.add( out );
+        return this;
+    }
+
+    /**
+     * Add a channel that will be written to on the copying thread.
+     *
+     * @param out The channel to write to
+     * @return this tee, for chaining calls
+     */
+    public StreamTee addOutput( WritableByteChannel out )
+    {
+        channels.add( out );
+        return this;
+    }
+
+    /**
+     * Add an output stream that will be written to on its own thread, using the default number of buffered blocks.
+     *
+     * @param out The stream to write to
+     * @return this tee, for chaining calls
+     * @see #addAsyncOutput(OutputStream, int)
+     */
+    public StreamTee addAsyncOutput( OutputStream out )
+    {
+        return addAsyncOutput( out, DEFAULT_ASYNC_BLOCKS );
+    }
+
+    /**
+     * Add an output stream that will be written to on its own thread.
+     * The copy will only block on this output once it has fallen the specified number of blocks behind the input.
+     *
+     * @param out The stream to write to
+     * @param blocks The number of blocks that can be buffered for this output
+     * @return this tee, for chaining calls
+     */
+    public StreamTee addAsyncOutput( OutputStream out, int blocks )
+    {
+        if ( blocks <= 0 )
+        {
+            throw new IllegalArgumentException( "Buffered block count must be positive" );
+        }
+
+        asyncOutputs.add( new AsyncOutput( out, blocks ) );
+        return this;
+    }
+
+    /**
+     * Update the given checksum, for example a <code>CRC32</code> or <code>CRC32C</code>, with all bytes copied.
+     *
+     * @param checksum The checksum to update
+     * @return this tee, for chaining calls
+     */
+    public StreamTee addChecksum( Checksum checksum )
+    {
+        checksums.add( checksum );
+        return this;
+    }
+
+    /**
+     * Update the given message digest with all bytes copied.
+     *
+     * @param digest The digest to update
+     * @return this tee, for chaining calls
+     */
+    public StreamTee addDigest( MessageDigest digest )
+    {
+        digests.add( digest );
+        return this;
+    }
+
+    /**
+     * Copy all the bytes from the input to each of the outputs.
+     * This method returns once every output, including asynchronous outputs, has been written.
+     *
+     * @param in The stream to read from
+     * @return The number of bytes copied
+     * @throws IOException If an exception was encountered whilst reading the input or writing any of the outputs
+     */
+    public long copy( InputStream in )
+        throws IOException
+    {
+        for ( AsyncOutput async : asyncOutputs )
+        {
+            async.start( blockSize );
+        }
+
+        long total = 0;
+        boolean complete = false;
+        try
+        {
+            byte[] buffer = new byte[blockSize];
+            ByteBuffer wrapped = ByteBuffer.wrap( buffer );
+            int read;
+            while ( ( read = in.read( buffer ) ) > -1 )
+            {
+                for ( AsyncOutput async : asyncOutputs )
+                {
+                    async.write( buffer, read );
+                }
+                for ( OutputStream out : outputs )
+                {
+                    out.write( buffer, 0, read );
+                }
+                for ( WritableByteChannel channel : channels )
+                {
+                    wrapped.clear().limit( read );
+                    while ( wrapped.hasRemaining() )
+                    {
+                        channel.write( wrapped );
+                    }
+                }
+                for ( Checksum checksum : checksums )
+                {
+                    checksum.update( buffer, 0, read );
+                }
+                for ( MessageDigest digest : digests )
+                {
+                    digest.update( buffer, 0, read );
+                }
+
+                total += read;
+            }
+
+            complete = true;
+        }
+        finally
+        {
+            IOException failure = null;
+            for ( AsyncOutput async : asyncOutputs )
+            {
+                try
+                {
+                    async.finish( !complete );
+                }
+                catch ( IOException e )
+                {
+                    if ( failure == null )
+                    {
+                        failure = e;
+                    }
+                }
+            }
+
+            if ( failure != null && complete )
+            {
+                throw failure;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * An output written by a dedicated thread, fed through a fixed ring of blocks.
+     */
+    static class AsyncOutput
+        implements Runnable
+    {
+        private static final int END = -1;
+
+        private OutputStream out;
+        private int blockCount;
+
+        private byte[][] blocks;
+        private int[] lengths;
+        private int head, tail, count;
+
+        private Thread thread;
+        private volatile IOException failure;
+        private volatile boolean aborted;
+
+        AsyncOutput( OutputStream out, int blockCount )
+        {
+            this.out = out;
+            this.blockCount = blockCount;
+        }
+
+        void start( int blockSize )
+        {
+            if ( blocks == null || blocks[0].length != blockSize )
+            {
+                blocks = new byte[blockCount][blockSize];
+                lengths = new int[blockCount];
+            }
+            head = tail = count = 0;
+            failure = null;
+            aborted = false;
+
+            thread = new Thread( this, "StreamTee output" );
+            thread.setDaemon( true );
+            thread.start();
+        }
+
+        void write( byte[] data, int length )
+            throws IOException
+        {
+            synchronized ( this )
+            {
+                while ( count == blockCount && failure == null )
+                {
+                    waitForSpace();
+                }
+                if ( failure != null )
+                {
+                    throw failure;
+                }
+            }
+
+            // the writer thread never touches the tail slot while count < blockCount, so copy outside the lock
+            System.arraycopy( data, 0, blocks[tail], 0, length );
+
+            synchronized ( this )
+            {
+                lengths[tail] = length;
+                tail = ( tail + 1 ) % blockCount;
+                count++;
+                notifyAll();
+            }
+        }
+
+        void finish( boolean abort )
+            throws IOException
+        {
+            synchronized ( this )
+            {
+                if ( abort )
+                {
+                    aborted = true;
+                }
+                else
+                {
+                    while ( count == blockCount && failure == null )
+                    {
+                        waitForSpace();
+                    }
+                    if ( failure == null )
+                    {
+                        lengths[tail] = END;
+                        tail = ( tail + 1 ) % blockCount;
+                        count++;
+                    }
+                }
+                notifyAll();
+            }
+
+            try
+            {
+                thread.join();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted waiting for output to complete" );
+            }
+
+            if ( failure != null )
+            {
+                throw failure;
+            }
+            out.flush();
+        }
+
+        private void waitForSpace()
+            throws InterruptedIOException
+        {
+            try
+            {
+                wait();
+            }
+            catch ( InterruptedException e )
+            {
+                aborted = true;
+                notifyAll();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted waiting for output to accept data" );
+            }
+        }
+
+        public void run()
+        {
+            try
+            {
+                while ( true )
+                {
+                    int length;
+                    synchronized ( this )
+                    {
+                        while ( count == 0 && !aborted )
+                        {
+                            wait();
+                        }
+                        if ( aborted )
+                        {
+                            return;
+                        }
+                        length = lengths[head];
+                    }
+
+                    if ( length == END )
+                    {
+                        return;
+                    }
+                    out.write( blocks[head], 0, length );
+
+                    synchronized ( this )
+                    {
+                        head = ( head + 1 ) % blockCount;
+                        count--;
+                        notifyAll();
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                failure = e;
+            }
+            catch ( InterruptedException e )
+            {
+                failure = new InterruptedIOException( "Output thread interrupted" );
+            }
+            finally
+            {
+                synchronized ( this )
+                {
+                    notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out scratch directories that are removed when they are closed, for code that creates and discards
+ * many temporary directories. Each manager owns a session directory inside the base directory, holding a lock on a
+ * marker file inside it for as long as it is open. Scratch directories are created in the session directory and,
+ * when closed, are emptied on a background thread using {@link FileUtil#deleteTree(File)} and kept for reuse.
+ *
+ * When a manager is created it removes the session directories of any managers that did not close, such as after a
+ * crash, by finding sessions in the base directory whose lock is no longer held.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class TempDirManager
+    implements Closeable
+{
+    public static final int DEFAULT_MAX_POOLED = 16;
+
+    private static final String SESSION_PREFIX = "session-";
+    private static final String LOCK_FILE = ".lock";
+    private static final long UNLOCKED_SESSION_GRACE_MILLIS = TimeUnit.MINUTES.toMillis( 1 );
+
+    // sessions of this JVM must never be checked through their lock, closing a second channel on a lock file drops
+    // the POSIX lock that the owning manager holds
+    private static final Set<Path> OWNED_SESSIONS = Collections.newSetFromMap( new ConcurrentHashMap<Path, Boolean>() );
+    // for the same reason only one manager in this JVM checks and removes a given session at a time
+    private static final Set<Path> SWEEPING = Collections.newSetFromMap( new ConcurrentHashMap<Path, Boolean>() );
+
+    private Path base, session, ownedPath;
+    private FileChannel lockChannel;
+
+    private volatile int maxPooled = DEFAULT_MAX_POOLED;
+    private ConcurrentLinkedQueue<Path> pool = new ConcurrentLinkedQueue<Path>();
+    private AtomicInteger pooled = new AtomicInteger();
+    private AtomicInteger active = new AtomicInteger();
+    private AtomicLong created = new AtomicLong();
+    private AtomicLong reused = new AtomicLong();
+    private AtomicLong orphansRemoved = new AtomicLong();
+    private volatile boolean closed;
+
+    private ExecutorService cleaner;
+
+    /**
+     * Create a manager using a "scratch" directory inside the system temp directory.
+     *
+     * @throws IOException If the session directory could not be created
+     */
+    public TempDirManager()
+        throws IOException
+    {
+        this( new File( System.getProperty( "java.io.tmpdir" ), "scratch" ) );
+    }
+
+    /**
+     * Create a manager that keeps its session inside the base directory, removing abandoned sessions from the base
+     * directory in the background.
+     *
+     * @param base The directory to create sessions in, created if it does not exist
+     * @throws IOException If the session directory could not be created
+     */
+    public TempDirManager( File base )
+        throws IOException
+    {
+        this.base = base.toPath();
+        Files.createDirectories( this.base );
+
+        session = this.base.resolve( SESSION_PREFIX + UUID.randomUUID() );
+        Files.createDirectory( session );
+        ownedPath = session.toRealPath();
+        OWNED_SESSIONS.add( ownedPath );
+        try
+        {
+            lockChannel = FileChannel.open( session.resolve( LOCK_FILE ), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE );
+            lockChannel.lock();
+        }
+        catch ( IOException e )
+        {
+            OWNED_SESSIONS.remove( ownedPath );
+            IOUtil.close( lockChannel );
+            throw e;
+        }
+
+        cleaner = Executors.newSingleThreadExecutor( new ThreadFactory()
+        {
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "TempDirManager cleanup " + session.getFileName() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+        cleaner.execute( new Runnable()
+        {
+            public void run()
+            {
+                sweepOrphans();
+            }
+        } );
+    }
+
+    /**
+     * Set how many emptied directories are kept for reuse. Defaults to 16.
+     *
+     * @param maxPooled The most directories to keep
+     * @return this manager, for chaining calls
+     */
+    public TempDirManager setMaxPooled( int maxPooled )
+    {
+        this.maxPooled = maxPooled;
+        return this;
+    }
+
+    /**
+     * Get an empty scratch directory, to be closed when it is no longer needed, typically with try-with-resources.
+     *
+     * @return A new or recycled empty directory
+     * @throws IOException If the manager is closed or the directory could not be created
+     */
+    public ScratchDir create()
+        throws IOException
+    {
+        if ( closed )
+        {
+            throw new IOException( "Temp dir manager is closed: " + session );
+        }
+
+        Path dir = pool.poll();
+        if ( dir != null )
+        {
+            pooled.decrementAndGet();
+            reused.incrementAndGet();
+        }
+        else
+        {
+            dir = session.resolve( "tmp" + created.incrementAndGet() );
+            Files.createDirectory( dir );
+        }
+
+        active.incrementAndGet();
+        return new ScratchDir( dir );
+    }
+
+    /**
+     * @return The directory this manager creates scratch directories in
+     */
+    public File getSessionDirectory()
+    {
+        return session.toFile();
+    }
+
+    /**
+     * @return The number of scratch directories that have been handed out and not yet closed
+     */
+    public int getActiveCount()
+    {
+        return active.get();
+    }
+
+    /**
+     * @return The number of times an emptied directory was handed out again rather than creating one
+     */
+    public long getReusedCount()
+    {
+        return reused.get();
+    }
+
+    /**
+     * @return The number of abandoned sessions removed from the base directory
+     */
+    public long getOrphansRemovedCount()
+    {
+        return orphansRemoved.get();
+    }
+
+    /**
+     * Wait for the directories closed so far, and any abandoned sessions, to be cleaned up.
+     *
+     * @param time The longest time to wait
+     * @param unit The unit of the time parameter
+     * @return true if the cleanup completed in time
+     * @throws IOException If interrupted whilst waiting
+     */
+    public boolean awaitCleanup( long time, TimeUnit unit )
+        throws IOException
+    {
+        Future<?> marker = cleaner.submit( new Runnable()
+        {
+            public void run()
+            {
+            }
+        } );
+        try
+        {
+            marker.get( time, unit );
+            return true;
+        }
+        catch ( TimeoutException e )
+        {
+            return false;
+        }
+        catch ( ExecutionException e )
+        {
+            return false;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted waiting for temp dir cleanup" );
+        }
+    }
+
+    /**
+     * Finish any pending cleanup and delete the session directory, including scratch directories that are still
+     * open, then release the session lock.
+     *
+     * @throws IOException If the session directory could not be deleted
+     */
+    public void close()
+        throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+
+        cleaner.shutdown();
+        try
+        {
+            cleaner.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted waiting for temp dir cleanup" );
+        }
+
+        // release the lock first, some platforms cannot delete a locked file
+        IOUtil.close( lockChannel );
+        try
+        {
+            FileUtil.deleteTree( session.toFile() );
+        }
+        finally
+        {
+            OWNED_SESSIONS.remove( ownedPath );
+        }
+    }
+
+    private void release( final Path dir )
+    {
+        active.decrementAndGet();
+        if ( closed )
+        {
+            // the session is being removed along with this directory
+            return;
+        }
+
+        try
+        {
+            cleaner.execute( new Runnable()
+            {
+                public void run()
+                {
+                    recycle( dir );
+                }
+            } );
+        }
+        catch ( RuntimeException e )
+        {
+            // closed whilst releasing, the session delete will remove it
+        }
+    }
+
+    private void recycle( Path dir )
+    {
+        try
+        {
+            boolean keep = pooled.get() < maxPooled;
+            if ( keep )
+            {
+                try ( DirectoryStream<Path> children = Files.newDirectoryStream( dir ) )
+                {
+                    for ( Path child : children )
+                    {
+                        FileUtil.deleteTree( child.toFile() );
+                    }
+                }
+            }
+            else
+            {
+                FileUtil.deleteTree( dir.toFile() );
+            }
+
+            if ( keep && !closed )
+            {
+                pooled.incrementAndGet();
+                pool.offer( dir );
+            }
+        }
+        catch ( IOException e )
+        {
+            // leave it to be removed with the session
+        }
+    }
+
+    private void sweepOrphans()
+    {
+        try ( DirectoryStream<Path> sessions = Files.newDirectoryStream( base, SESSION_PREFIX + "*" ) )
+        {
+            for ( Path other : sessions )
+            {
+                Path real;
+                try
+                {
+                    real = other.toRealPath();
+                }
+                catch ( IOException e )
+                {
+                    // already removed
+                    continue;
+                }
+                if ( OWNED_SESSIONS.contains( real ) || !SWEEPING.add( real ) )
+                {
+                    continue;
+                }
+
+                try
+                {
+                    if ( isAbandoned( other ) )
+                    {
+                        FileUtil.deleteTree( other.toFile() );
+                        orphansRemoved.incrementAndGet();
+                    }
+                }
+                catch ( IOException e )
+                {
+                    // another process may be removing it too, try again next time
+                }
+                finally
+                {
+                    SWEEPING.remove( real );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            // nothing to sweep
+        }
+    }
+
+    private boolean isAbandoned( Path other )
+    {
+        Path lockFile = other.resolve( LOCK_FILE );
+        if ( !Files.exists( lockFile ) )
+        {
+            // a session that crashed before taking its lock, or one that is starting up right now
+            return other.toFile().lastModified() < System.currentTimeMillis() - UNLOCKED_SESSION_GRACE_MILLIS;
+        }
+
+        try ( FileChannel channel = FileChannel.open( lockFile, StandardOpenOption.WRITE ) )
+        {
+            FileLock otherLock = channel.tryLock();
+            if ( otherLock == null )
+            {
+                return false;
+            }
+
+            otherLock.release();
+            return true;
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+        catch ( OverlappingFileLockException e )
+        {
+            // locked elsewhere in this JVM
+            return false;
+        }
+    }
+
+    /**
+     * A scratch directory from a <code>TempDirManager</code>, which is emptied and returned to the manager on close.
+     */
+    public class ScratchDir
+        implements Closeable
+    {
+        private Path dir;
+        private AtomicBoolean closed = new AtomicBoolean();
+
+        ScratchDir( Path dir )
+        {
+            this.dir = dir;
+        }
+
+        public File getDirectory()
+        {
+            return dir.toFile();
+        }
+
+        public Path getPath()
+        {
+            return dir;
+        }
+
+        /**
+         * Hand the directory back to be emptied in the background. It must not be used after closing.
+         */
+        public void close()
+        {
+            if ( closed.compareAndSet( false, true ) )
+            {
+                release( dir );
+            }
+        }
+
+        public String toString()
+        {
+            return dir.toString();
+        }
+    }
+}
@@ -0,0 +1,502 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copies a directory tree in parallel on a fork/join pool, skipping files that are already up to date.
+ * Each directory is a task that forks a task per file and per sub-directory. File content is copied with
+ * <code>FileChannel.transferTo</code> so the data does not need to pass through the Java heap.
+ * Symbolic links are copied as links, never followed.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+class TreeCopier
+{
+    private static final int MAX_REPORTED_FAILURES = 100;
+    private static final int COMPARE_BUFFER_SIZE = 64 * 1024;
+
+    private CopyOptions options;
+
+    private LongAdder copied = new LongAdder();
+    private LongAdder skipped = new LongAdder();
+    private LongAdder bytes = new LongAdder();
+    private LongAdder deleted = new LongAdder();
+
+    private ConcurrentLinkedQueue<IOException> failures = new ConcurrentLinkedQueue<IOException>();
+    private AtomicInteger failureCount = new AtomicInteger();
+
+    public TreeCopier( CopyOptions options )
+    {
+        this.options = options;
+    }
+
+    public CopyResult copy( Path source, Path dest )
+        throws IOException
+    {
+        BasicFileAttributes attributes = Files.readAttributes( source, BasicFileAttributes.class,
+                LinkOption.NOFOLLOW_LINKS );
+        if ( attributes.isDirectory() )
+        {
+            options.getPool().invoke( new DirectoryTask( null, source, dest, attributes ) );
+        }
+        else
+        {
+            options.getPool().invoke( new FileTask( null, source, dest, attributes ) );
+        }
+
+        if ( failureCount.get() > 0 )
+        {
+            IOException failure = new IOException( "Unable to copy " + failureCount.get() + " paths from: " +
+                    source );
+            for ( IOException cause : failures )
+            {
+                failure.addSuppressed( cause );
+            }
+            throw failure;
+        }
+
+        return new CopyResult( copied.sum(), skipped.sum(), bytes.sum(), deleted.sum() );
+    }
+
+    private void recordFailure( IOException e )
+    {
+        if ( failureCount.incrementAndGet() <= MAX_REPORTED_FAILURES )
+        {
+            failures.add( e );
+        }
+    }
+
+    private void copyEntry( Path source, Path dest, BasicFileAttributes attributes )
+    {
+        try
+        {
+            if ( attributes.isSymbolicLink() )
+            {
+                copyLink( source, dest );
+            }
+            else
+            {
+                copyFile( source, dest, attributes );
+            }
+        }
+        catch ( IOException e )
+        {
+            recordFailure( e );
+        }
+    }
+
+    private void copyLink( Path source, Path dest )
+        throws IOException
+    {
+        Path target = Files.readSymbolicLink( source );
+        if ( Files.isSymbolicLink( dest ) && target.equals( Files.readSymbolicLink( dest ) ) )
+        {
+            skipped.increment();
+            return;
+        }
+
+        removeExisting( dest );
+        Files.createSymbolicLink( dest, target );
+        copied.increment();
+    }
+
+    private void copyFile( Path source, Path dest, BasicFileAttributes attributes )
+        throws IOException
+    {
+        BasicFileAttributes existing = readAttributesIfExists( dest );
+        if ( existing != null )
+        {
+            if ( !existing.isRegularFile() )
+            {
+                removeExisting( dest );
+            }
+            else if ( isUpToDate( source, attributes, dest, existing ) )
+            {
+                skipped.increment();
+                return;
+            }
+        }
+
+        try ( FileChannel in = FileChannel.open( source, StandardOpenOption.READ );
+              FileChannel out = FileChannel.open( dest, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                      StandardOpenOption.TRUNCATE_EXISTING ) )
+        {
+            long size = in.size();
+            long position = 0;
+            while ( position < size )
+            {
+                long transferred = in.transferTo( position, size - position, out );
+                if ( transferred <= 0 )
+                {
+                    // the file was truncated whilst we copied
+                    break;
+                }
+                position += transferred;
+            }
+            bytes.add( position );
+        }
+
+        if ( options.isVerifyContent() && !isSameContent( source, dest ) )
+        {
+            throw new IOException( "Copied file does not match the source: " + dest );
+        }
+
+        Files.setLastModifiedTime( dest, attributes.lastModifiedTime() );
+        if ( options.isPreserveAttributes() )
+        {
+            copyPermissions( source, dest );
+        }
+        copied.increment();
+    }
+
+    private boolean isUpToDate( Path source, BasicFileAttributes attributes, Path dest, BasicFileAttributes existing )
+        throws IOException
+    {
+        if ( attributes.size() != existing.size() )
+        {
+            return false;
+        }
+
+        switch ( options.getComparison() )
+        {
+            case SIZE_AND_TIME:
+                return attributes.lastModifiedTime().toMillis() == existing.lastModifiedTime().toMillis();
+            case CONTENT:
+                return isSameContent( source, dest );
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isSameContent( Path source, Path dest )
+        throws IOException
+    {
+        try ( FileChannel first = FileChannel.open( source, StandardOpenOption.READ );
+              FileChannel second = FileChannel.open( dest, StandardOpenOption.READ ) )
+        {
+            ByteBuffer firstBuffer = ByteBuffer.allocate( COMPARE_BUFFER_SIZE );
+            ByteBuffer secondBuffer = ByteBuffer.allocate( COMPARE_BUFFER_SIZE );
+            while ( true )
+            {
+                firstBuffer.clear();
+                secondBuffer.clear();
+                int read = fill( first, firstBuffer );
+                if ( read != fill( second, secondBuffer ) )
+                {
+                    return false;
+                }
+                if ( read <= 0 )
+                {
+                    return true;
+                }
+
+                firstBuffer.flip();
+                secondBuffer.flip();
+                if ( !firstBuffer.equals( secondBuffer ) )
+                {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private static int fill( FileChannel channel, ByteBuffer buffer )
+        throws IOException
+    {
+        int total = 0;
+        while ( buffer.hasRemaining() )
+        {
+            int read = channel.read( buffer );
+            if ( read < 0 )
+            {
+                break;
+            }
+            total += read;
+        }
+
+        return total;
+    }
+
+    private void copyPermissions( Path source, Path dest )
+        throws IOException
+    {
+        PosixFileAttributeView sourceView = Files.getFileAttributeView( source, PosixFileAttributeView.class,
+                LinkOption.NOFOLLOW_LINKS );
+        PosixFileAttributeView destView = Files.getFileAttributeView( dest, PosixFileAttributeView.class,
+                LinkOption.NOFOLLOW_LINKS );
+        if ( sourceView != null && destView != null )
+        {
+            destView.setPermissions( sourceView.readAttributes().permissions() );
+        }
+    }
+
+    private void removeExisting( Path path )
+        throws IOException
+    {
+        // directories are removed by a RemoveTask before we get here
+        if ( Files.deleteIfExists( path ) )
+        {
+            deleted.increment();
+        }
+    }
+
+    private static BasicFileAttributes readAttributesIfExists( Path path )
+        throws IOException
+    {
+        try
+        {
+            return Files.readAttributes( path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS );
+        }
+        catch ( NoSuchFileException e )
+        {
+            return null;
+        }
+    }
+
+    class DirectoryTask
+        extends CountedCompleter<Void>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private Path source, dest;
+        private BasicFileAttributes attributes;
+
+        DirectoryTask( CountedCompleter<?> parent, Path source, Path dest, BasicFileAttributes attributes )
+        {
+            super( parent );
+            this.source = source;
+            this.dest = dest;
+            this.attributes = attributes;
+        }
+
+        public void compute()
+        {
+            try
+            {
+                BasicFileAttributes existing = readAttributesIfExists( dest );
+                if ( existing != null && !existing.isDirectory() )
+                {
+                    removeExisting( dest );
+                    existing = null;
+                }
+                if ( existing == null )
+                {
+                    Files.createDirectory( dest );
+                }
+
+                Set<Path> names = new HashSet<Path>();
+                try ( DirectoryStream<Path> children = Files.newDirectoryStream( source ) )
+                {
+                    for ( Path child : children )
+                    {
+                        Path name = child.getFileName();
+                        names.add( name );
+
+                        BasicFileAttributes childAttributes;
+                        try
+                        {
+                            childAttributes = Files.readAttributes( child, BasicFileAttributes.class,
+                                    LinkOption.NOFOLLOW_LINKS );
+                        }
+                        catch ( IOException e )
+                        {
+                            recordFailure( e );
+                            continue;
+                        }
+
+                        Path childDest = dest.resolve( name.toString() );
+                        addToPendingCount( 1 );
+                        if ( childAttributes.isDirectory() )
+                        {
+                            new DirectoryTask( this, child, childDest, childAttributes ).fork();
+                        }
+                        else
+                        {
+                            new FileTask( this, child, childDest, childAttributes ).fork();
+                        }
+                    }
+                }
+
+                if ( options.isDeleteExtraneous() && existing != null )
+                {
+                    deleteExtraneous( names );
+                }
+            }
+            catch ( IOException e )
+            {
+                recordFailure( e );
+            }
+
+            tryComplete();
+        }
+
+        private void deleteExtraneous( Set<Path> names )
+            throws IOException
+        {
+            try ( DirectoryStream<Path> children = Files.newDirectoryStream( dest ) )
+            {
+                for ( Path child : children )
+                {
+                    if ( !names.contains( child.getFileName() ) )
+                    {
+                        if ( Files.isDirectory( child, LinkOption.NOFOLLOW_LINKS ) )
+                        {
+                            addToPendingCount( 1 );
+                            new RemoveTask( this, child ).fork();
+                        }
+                        else
+                        {
+                            removeExisting( child );
+                        }
+                    }
+                }
+            }
+        }
+
+        public void onCompletion( CountedCompleter<?> caller )
+        {
+            if ( !options.isPreserveAttributes() )
+            {
+                return;
+            }
+
+            try
+            {
+                copyPermissions( source, dest );
+                Files.setLastModifiedTime( dest, attributes.lastModifiedTime() );
+            }
+            catch ( IOException e )
+            {
+                recordFailure( e );
+            }
+        }
+    }
+
+    class FileTask
+        extends CountedCompleter<Void>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private Path source, dest;
+        private BasicFileAttributes attributes;
+        private boolean replacing;
+
+        FileTask( CountedCompleter<?> parent, Path source, Path dest, BasicFileAttributes attributes )
+        {
+            super( parent );
+            this.source = source;
+            this.dest = dest;
+            this.attributes = attributes;
+        }
+
+        public void compute()
+        {
+            try
+            {
+                BasicFileAttributes existing = readAttributesIfExists( dest );
+                if ( existing != null && existing.isDirectory() && !options.isDeleteExtraneous() )
+                {
+                    throw new IOException( "Unable to replace directory with a file: " + dest );
+                }
+                else if ( existing != null && existing.isDirectory() )
+                {
+                    // copy once the directory in the way has been removed
+                    replacing = true;
+                    addToPendingCount( 1 );
+                    new RemoveTask( this, dest ).fork();
+                }
+                else
+                {
+                    copyEntry( source, dest, attributes );
+                }
+            }
+            catch ( IOException e )
+            {
+                recordFailure( e );
+            }
+
+            tryComplete();
+        }
+
+        public void onCompletion( CountedCompleter<?> caller )
+        {
+            if ( replacing )
+            {
+                copyEntry( source, dest, attributes );
+            }
+        }
+    }
+
+    /**
+     * Deletes a destination directory as a subtask, so that pool threads never block waiting for a delete.
+     */
+    class RemoveTask
+        extends CountedCompleter<Void>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private Path dir;
+        private TreeDeleter deleter = new TreeDeleter();
+
+        RemoveTask( CountedCompleter<?> parent, Path dir )
+        {
+            super( parent );
+            this.dir = dir;
+        }
+
+        public void compute()
+        {
+            addToPendingCount( 1 );
+            deleter.deleteTask( this, dir ).fork();
+            tryComplete();
+        }
+
+        public void onCompletion( CountedCompleter<?> caller )
+        {
+            try
+            {
+                deleter.checkFailures( dir );
+                deleted.increment();
+            }
+            catch ( IOException e )
+            {
+                recordFailure( e );
+            }
+        }
+    }
+}
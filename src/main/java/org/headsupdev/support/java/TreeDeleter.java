@@ -0,0 +1,243 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deletes a directory tree in parallel on a fork/join pool.
+ * Each directory is a task that deletes its files (in batches for large directories) and forks a task per
+ * sub-directory. A directory is removed once all of its children complete, so tasks never wait on each other and
+ * the depth of the tree is not limited by the thread stack. Symbolic links are deleted, never followed.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+class TreeDeleter
+{
+    private static final int FILE_BATCH_SIZE = 256;
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private LongAdder files = new LongAdder();
+    private LongAdder directories = new LongAdder();
+    private LongAdder bytes = new LongAdder();
+
+    private ConcurrentLinkedQueue<IOException> failures = new ConcurrentLinkedQueue<IOException>();
+    private AtomicInteger failureCount = new AtomicInteger();
+
+    public DeleteResult delete( Path root, ForkJoinPool pool )
+        throws IOException
+    {
+        BasicFileAttributes attributes = Files.readAttributes( root, BasicFileAttributes.class,
+                LinkOption.NOFOLLOW_LINKS );
+        if ( attributes.isDirectory() )
+        {
+            pool.invoke( new DirectoryTask( null, root ) );
+        }
+        else
+        {
+            deleteFile( root, attributes.isRegularFile() ? attributes.size() : 0 );
+        }
+
+        checkFailures( root );
+        return new DeleteResult( files.sum(), directories.sum(), bytes.sum() );
+    }
+
+    /**
+     * Create a task that deletes a directory tree as a subtask of another task on the same pool, rather than
+     * blocking a pool thread in <code>invoke</code>. Call {@link #checkFailures(Path)} once it completes.
+     *
+     * @param parent The task to complete once the tree is deleted
+     * @param dir The directory to delete
+     * @return A task to fork
+     */
+    CountedCompleter<Void> deleteTask( CountedCompleter<?> parent, Path dir )
+    {
+        return new DirectoryTask( parent, dir );
+    }
+
+    void checkFailures( Path root )
+        throws IOException
+    {
+        if ( failureCount.get() > 0 )
+        {
+            IOException failure = new IOException( "Unable to delete " + failureCount.get() + " paths under: " +
+                    root );
+            for ( IOException cause : failures )
+            {
+                failure.addSuppressed( cause );
+            }
+            throw failure;
+        }
+    }
+
+    private void deleteFile( Path file, long size )
+    {
+        try
+        {
+            Files.delete( file );
+            files.increment();
+            bytes.add( size );
+        }
+        catch ( IOException e )
+        {
+            recordFailure( e );
+        }
+    }
+
+    private void recordFailure( IOException e )
+    {
+        if ( failureCount.incrementAndGet() <= MAX_REPORTED_FAILURES )
+        {
+            failures.add( e );
+        }
+    }
+
+    class DirectoryTask
+        extends CountedCompleter<Void>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private Path dir;
+
+        DirectoryTask( CountedCompleter<?> parent, Path dir )
+        {
+            super( parent );
+            this.dir = dir;
+        }
+
+        public void compute()
+        {
+            FileBatch batch = new FileBatch();
+            try ( DirectoryStream<Path> children = Files.newDirectoryStream( dir ) )
+            {
+                for ( Path child : children )
+                {
+                    BasicFileAttributes attributes;
+                    try
+                    {
+                        attributes = Files.readAttributes( child, BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS );
+                    }
+                    catch ( IOException e )
+                    {
+                        recordFailure( e );
+                        continue;
+                    }
+
+                    if ( attributes.isDirectory() )
+                    {
+                        addToPendingCount( 1 );
+                        new DirectoryTask( this, child ).fork();
+                    }
+                    else
+                    {
+                        batch.add( child, attributes.isRegularFile() ? attributes.size() : 0 );
+                        if ( batch.isFull() )
+                        {
+                            addToPendingCount( 1 );
+                            new FileBatchTask( this, batch ).fork();
+                            batch = new FileBatch();
+                        }
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                recordFailure( e );
+            }
+
+            batch.delete();
+            tryComplete();
+        }
+
+        public void onCompletion( CountedCompleter<?> caller )
+        {
+            try
+            {
+                Files.delete( dir );
+                directories.increment();
+            }
+            catch ( IOException e )
+            {
+                recordFailure( e );
+            }
+        }
+    }
+
+    class FileBatchTask
+        extends CountedCompleter<Void>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private FileBatch batch;
+
+        FileBatchTask( CountedCompleter<?> parent, FileBatch batch )
+        {
+            super( parent );
+            this.batch = batch;
+        }
+
+        public void compute()
+        {
+            batch.delete();
+            tryComplete();
+        }
+    }
+
+    /**
+     * Files from a single directory, with the sizes already read when listing the directory.
+     */
+    class FileBatch
+    {
+        private Path[] paths = new Path[FILE_BATCH_SIZE];
+        private long[] sizes = new long[FILE_BATCH_SIZE];
+        private int count;
+
+        void add( Path path, long size )
+        {
+            paths[count] = path;
+            sizes[count] = size;
+            count++;
+        }
+
+        boolean isFull()
+        {
+            return count == FILE_BATCH_SIZE;
+        }
+
+        void delete()
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                deleteFile( paths[i], sizes[i] );
+            }
+        }
+    }
+}
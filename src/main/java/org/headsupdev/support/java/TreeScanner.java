@@ -0,0 +1,293 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gathers statistics for a directory tree in parallel on a fork/join pool.
+ * Each directory is a task that reads the attributes of its entries, one call per entry, and forks a task per
+ * sub-directory, in the same way as {@link TreeDeleter}. When links are followed each directory is identified by its
+ * file key, or real path, so that no directory is scanned twice and link cycles terminate.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+class TreeScanner
+{
+    private static final int MAX_REPORTED_FAILURES = 100;
+    private static final LinkOption[] NO_FOLLOW = { LinkOption.NOFOLLOW_LINKS };
+    private static final LinkOption[] FOLLOW = {};
+
+    private static final Comparator<ScanResult.FileSize> BY_SIZE = new Comparator<ScanResult.FileSize>()
+    {
+        public int compare( ScanResult.FileSize a, ScanResult.FileSize b )
+        {
+            return Long.compare( a.getSize(), b.getSize() );
+        }
+    };
+
+    private ScanOptions options;
+    private LinkOption[] linkOptions;
+    private long started = System.currentTimeMillis();
+
+    private LongAdder files = new LongAdder();
+    private LongAdder directories = new LongAdder();
+    private LongAdder links = new LongAdder();
+    private LongAdder bytes = new LongAdder();
+    private long[] ageBuckets;
+    private AtomicLongArray ageFiles, ageBytes;
+
+    private PriorityQueue<ScanResult.FileSize> largest = new PriorityQueue<ScanResult.FileSize>( 11, BY_SIZE );
+    private volatile long largestMinimum = -1;
+
+    private Set<Object> visited = Collections.newSetFromMap( new ConcurrentHashMap<Object, Boolean>() );
+    private AtomicLong nextProgress;
+
+    private ConcurrentLinkedQueue<IOException> failures = new ConcurrentLinkedQueue<IOException>();
+    private AtomicInteger failureCount = new AtomicInteger();
+
+    TreeScanner( ScanOptions options )
+    {
+        this.options = options;
+        this.linkOptions = options.isFollowLinks() ? FOLLOW : NO_FOLLOW;
+        this.ageBuckets = options.getAgeBuckets().clone();
+        this.ageFiles = new AtomicLongArray( ageBuckets.length + 1 );
+        this.ageBytes = new AtomicLongArray( ageBuckets.length + 1 );
+        this.nextProgress = new AtomicLong( started + options.getProgressMillis() );
+    }
+
+    public ScanResult scan( Path root )
+        throws IOException
+    {
+        BasicFileAttributes attributes = Files.readAttributes( root, BasicFileAttributes.class, linkOptions );
+        if ( attributes.isDirectory() )
+        {
+            if ( options.isFollowLinks() )
+            {
+                visited.add( directoryKey( root, attributes ) );
+            }
+            options.getPool().invoke( new DirectoryTask( null, root ) );
+        }
+        else
+        {
+            addEntry( root, attributes );
+        }
+
+        return snapshot( true );
+    }
+
+    private void addEntry( Path path, BasicFileAttributes attributes )
+    {
+        if ( attributes.isSymbolicLink() )
+        {
+            links.increment();
+            return;
+        }
+
+        long size = attributes.size();
+        files.increment();
+        bytes.add( size );
+
+        int bucket = bucketFor( started - attributes.lastModifiedTime().toMillis() );
+        ageFiles.incrementAndGet( bucket );
+        ageBytes.addAndGet( bucket, size );
+
+        if ( options.getLargestFileCount() > 0 && size > largestMinimum )
+        {
+            addLargest( new ScanResult.FileSize( path.toFile(), size ) );
+        }
+    }
+
+    private int bucketFor( long age )
+    {
+        for ( int i = 0; i < ageBuckets.length; i++ )
+        {
+            if ( age < ageBuckets[i] )
+            {
+                return i;
+            }
+        }
+
+        return ageBuckets.length;
+    }
+
+    private void addLargest( ScanResult.FileSize file )
+    {
+        synchronized ( largest )
+        {
+            largest.add( file );
+            if ( largest.size() > options.getLargestFileCount() )
+            {
+                largest.poll();
+            }
+            if ( largest.size() == options.getLargestFileCount() )
+            {
+                largestMinimum = largest.peek().getSize();
+            }
+        }
+    }
+
+    private Object directoryKey( Path dir, BasicFileAttributes attributes )
+        throws IOException
+    {
+        Object key = attributes.fileKey();
+        if ( key == null )
+        {
+            key = dir.toRealPath();
+        }
+
+        return key;
+    }
+
+    private void recordFailure( IOException e )
+    {
+        if ( failureCount.incrementAndGet() <= MAX_REPORTED_FAILURES )
+        {
+            failures.add( e );
+        }
+    }
+
+    private void reportProgress()
+    {
+        ScanListener listener = options.getListener();
+        if ( listener == null )
+        {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long next = nextProgress.get();
+        if ( now >= next && nextProgress.compareAndSet( next, now + options.getProgressMillis() ) )
+        {
+            listener.scanProgress( snapshot( false ) );
+        }
+    }
+
+    private ScanResult snapshot( boolean complete )
+    {
+        List<ScanResult.FileSize> biggest;
+        synchronized ( largest )
+        {
+            biggest = new ArrayList<ScanResult.FileSize>( largest );
+        }
+        Collections.sort( biggest, Collections.reverseOrder( BY_SIZE ) );
+
+        long[] files = new long[ageBuckets.length + 1];
+        long[] sizes = new long[ageBuckets.length + 1];
+        for ( int i = 0; i < files.length; i++ )
+        {
+            files[i] = ageFiles.get( i );
+            sizes[i] = ageBytes.get( i );
+        }
+
+        return new ScanResult( this.files.sum(), directories.sum(), links.sum(), bytes.sum(), biggest,
+                ageBuckets.clone(), files, sizes, new ArrayList<IOException>( failures ), failureCount.get(),
+                complete );
+    }
+
+    class DirectoryTask
+        extends CountedCompleter<Void>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private Path dir;
+
+        DirectoryTask( CountedCompleter<?> parent, Path dir )
+        {
+            super( parent );
+            this.dir = dir;
+        }
+
+        public void compute()
+        {
+            directories.increment();
+            try ( DirectoryStream<Path> children = Files.newDirectoryStream( dir ) )
+            {
+                for ( Path child : children )
+                {
+                    try
+                    {
+                        scanChild( child );
+                    }
+                    catch ( IOException e )
+                    {
+                        recordFailure( e );
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                recordFailure( e );
+            }
+
+            reportProgress();
+            tryComplete();
+        }
+
+        private void scanChild( Path child )
+            throws IOException
+        {
+            BasicFileAttributes attributes = Files.readAttributes( child, BasicFileAttributes.class,
+                    NO_FOLLOW );
+            // a followed link is counted as whatever it points to, unless that was already scanned
+            boolean link = attributes.isSymbolicLink();
+            if ( link && options.isFollowLinks() )
+            {
+                attributes = Files.readAttributes( child, BasicFileAttributes.class );
+            }
+
+            if ( !attributes.isDirectory() )
+            {
+                addEntry( child, attributes );
+                return;
+            }
+
+            if ( options.isFollowLinks() && !visited.add( directoryKey( child, attributes ) ) )
+            {
+                if ( link )
+                {
+                    links.increment();
+                }
+                return;
+            }
+
+            addToPendingCount( 1 );
+            new DirectoryTask( this, child ).fork();
+        }
+    }
+}
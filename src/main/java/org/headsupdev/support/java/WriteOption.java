@@ -0,0 +1,49 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+/**
+ * Options for how <code>FileUtil.writeToFile</code> writes content.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public enum WriteOption
+{
+    /**
+     * Add to the end of the file rather than replacing its content. Cannot be combined with ATOMIC.
+     */
+    APPEND,
+
+    /**
+     * Write to a temporary file next to the target, sync it to disk and then atomically rename it over the target.
+     * Readers will see either the old content or the new content, never a partially written file.
+     */
+    ATOMIC,
+
+    /**
+     * Force the written content to the storage device before returning.
+     */
+    SYNC,
+
+    /**
+     * Terminate the content with a line separator, as the original <code>writeToFile</code> methods do.
+     */
+    NEWLINE
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * An OutputStream that decodes the bytes written to it and passes the text to a Writer. Bytes are decoded a block
+ * at a time, with characters split across writes held back until they are complete, so the text is passed through
+ * exactly, including any carriage returns. Malformed input is replaced rather than failing.
+ *
+ * Call {@link #finish()} to decode any trailing partial character without closing the writer.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class WriterOutputStream
+    extends OutputStream
+{
+    private static final int CHAR_BUFFER_SIZE = 8 * 1024;
+
+    private Writer writer;
+    private CharsetDecoder decoder;
+
+    private CharBuffer chars = CharBuffer.allocate( CHAR_BUFFER_SIZE );
+    private ByteBuffer partial = ByteBuffer.allocate( 16 );
+
+    public WriterOutputStream( Writer writer, Charset charset )
+    {
+        this.writer = writer;
+        this.decoder = charset.newDecoder().onMalformedInput( CodingErrorAction.REPLACE )
+                .onUnmappableCharacter( CodingErrorAction.REPLACE );
+    }
+
+    public void write( int b )
+        throws IOException
+    {
+        write( new byte[]{ (byte) b }, 0, 1 );
+    }
+
+    public void write( byte[] b, int off, int len )
+        throws IOException
+    {
+        ByteBuffer input = ByteBuffer.wrap( b, off, len );
+
+        // complete a character left over from the last write, a byte at a time
+        while ( partial.position() > 0 && input.hasRemaining() )
+        {
+            partial.put( input.get() );
+            partial.flip();
+            decode( partial, false );
+            partial.compact();
+        }
+
+        decode( input, false );
+        if ( input.hasRemaining() )
+        {
+            // the start of a character that continues in the next write
+            partial.put( input );
+        }
+    }
+
+    /**
+     * Decode any bytes held back from the last write and flush the writer, leaving it open.
+     *
+     * @throws IOException If the writer could not be written to
+     */
+    public void finish()
+        throws IOException
+    {
+        partial.flip();
+        decode( partial, true );
+        partial.clear();
+
+        while ( decoder.flush( chars ).isOverflow() )
+        {
+            writeChars();
+        }
+        writeChars();
+        decoder.reset();
+
+        writer.flush();
+    }
+
+    public void flush()
+        throws IOException
+    {
+        writer.flush();
+    }
+
+    public void close()
+        throws IOException
+    {
+        try
+        {
+            finish();
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    private void decode( ByteBuffer input, boolean endOfInput )
+        throws IOException
+    {
+        while ( true )
+        {
+            CoderResult result = decoder.decode( input, chars, endOfInput );
+            writeChars();
+            if ( !result.isOverflow() )
+            {
+                break;
+            }
+        }
+    }
+
+    private void writeChars()
+        throws IOException
+    {
+        if ( chars.position() > 0 )
+        {
+            writer.write( chars.array(), 0, chars.position() );
+            chars.clear();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the buffered append log.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class AppendLogTest
+    extends TestCase
+{
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    public void testConcurrentAppends()
+            throws Exception
+    {
+        File dir = FileUtil.createTempDir( "appendlog", "" );
+        try
+        {
+            File file = new File( dir, "events.log" );
+            final AppendLog log = new AppendLog( file, UTF8 ).setFlushThreshold( 1024 );
+            Thread[] threads = new Thread[8];
+            for ( int i = 0; i < threads.length; i++ )
+            {
+                final int thread = i;
+                threads[i] = new Thread()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            for ( int j = 0; j < 5000; j++ )
+                            {
+                                log.appendLine( thread + "-" + j );
+                            }
+                        }
+                        catch ( IOException e )
+                        {
+                            fail( e.getMessage() );
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            for ( Thread thread : threads )
+            {
+                thread.join();
+            }
+
+            log.flush();
+            assertEquals( 40000, FileUtil.toString( file ).split( "\n" ).length );
+            log.close();
+        }
+        finally
+        {
+            FileUtil.delete( dir );
+        }
+    }
+
+    public void testFlushInterval()
+            throws Exception
+    {
+        File dir = FileUtil.createTempDir( "appendlog", "" );
+        try
+        {
+            File file = new File( dir, "events.log" );
+            AppendLog log = new AppendLog( file, UTF8 ).setFlushInterval( 10, TimeUnit.MILLISECONDS );
+            log.append( "quiet" );
+
+            long end = System.currentTimeMillis() + 5000;
+            while ( file.length() == 0 && System.currentTimeMillis() < end )
+            {
+                Thread.sleep( 10 );
+            }
+            assertEquals( 5, file.length() );
+            log.close();
+        }
+        finally
+        {
+            FileUtil.delete( dir );
+        }
+    }
+
+    public void testRollBySize()
+            throws IOException
+    {
+        File dir = FileUtil.createTempDir( "appendlog", "" );
+        try
+        {
+            File file = new File( dir, "events.log" );
+            AppendLog log = new AppendLog( file, UTF8 ).setRollSize( 10 );
+            log.append( "0123456789" );
+            log.flush();
+            log.append( "abc" );
+            log.close();
+
+            assertEquals( 2, dir.list().length );
+            assertEquals( 3, file.length() );
+        }
+        finally
+        {
+            FileUtil.delete( dir );
+        }
+    }
+
+    public void testRollKeepsEntriesWhole()
+            throws IOException
+    {
+        File dir = FileUtil.createTempDir( "appendlog", "" );
+        try
+        {
+            File file = new File( dir, "events.log" );
+            AppendLog log = new AppendLog( file, UTF8 ).setRollSize( 10 );
+            // written in one batch, but each file must end on an entry boundary
+            log.append( "abcdef" );
+            log.append( "ghijkl" );
+            log.close();
+
+            String[] names = dir.list();
+            assertEquals( 2, names.length );
+            Arrays.sort( names );
+            assertEquals( "ghijkl\n", FileUtil.toString( file ) );
+            assertEquals( "abcdef\n", FileUtil.toString( new File( dir, names[1] ) ) );
+        }
+        finally
+        {
+            FileUtil.delete( dir );
+        }
+    }
+
+    public void testAppendAfterClose()
+            throws IOException
+    {
+        File dir = FileUtil.createTempDir( "appendlog", "" );
+        try
+        {
+            AppendLog log = new AppendLog( new File( dir, "events.log" ), UTF8 );
+            log.close();
+
+            try
+            {
+                log.append( "late" );
+                fail();
+            }
+            catch ( IOException e )
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            FileUtil.delete( dir );
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the download cache against a local HTTP server.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class DownloadCacheTest
+    extends TestCase
+{
+    private HttpServer server;
+    private TestHandler handler;
+    private File dir;
+
+    protected void setUp()
+            throws Exception
+    {
+        handler = new TestHandler();
+        server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+        server.createContext( "/", handler );
+        server.setExecutor( Executors.newCachedThreadPool() );
+        server.start();
+
+        dir = FileUtil.createTempDir( "cache", "" );
+    }
+
+    protected void tearDown()
+            throws Exception
+    {
+        server.stop( 0 );
+        FileUtil.delete( dir );
+    }
+
+    private URL url( String path )
+            throws IOException
+    {
+        return new URL( "http://127.0.0.1:" + server.getAddress().getPort() + path );
+    }
+
+    public void testRevalidation()
+            throws IOException
+    {
+        DownloadCache cache = new DownloadCache( dir, 1024 * 1024 );
+        File first = cache.get( url( "/a" ) );
+        assertEquals( "content of /a", FileUtil.toString( first ).trim() );
+        assertEquals( 1, cache.getMissCount() );
+
+        File second = cache.get( url( "/a" ) );
+        assertEquals( first, second );
+        assertEquals( 1, cache.getHitCount() );
+        assertEquals( 1, cache.getRevalidationCount() );
+        assertEquals( 1, handler.fullResponses.get() );
+
+        handler.version = "2";
+        File third = cache.get( url( "/a" ) );
+        assertEquals( "content of /a v2", FileUtil.toString( third ).trim() );
+        assertEquals( 2, cache.getMissCount() );
+        assertFalse( first.exists() );
+    }
+
+    public void testRefetchesDeletedContent()
+            throws IOException
+    {
+        DownloadCache cache = new DownloadCache( dir, 1024 * 1024 );
+        File first = cache.get( url( "/a" ) );
+        assertTrue( first.delete() );
+
+        File second = cache.get( url( "/a" ) );
+        assertEquals( "content of /a", FileUtil.toString( second ).trim() );
+        assertEquals( 2, cache.getMissCount() );
+        assertEquals( 2, handler.fullResponses.get() );
+
+        assertEquals( second, cache.get( url( "/a" ) ) );
+        assertEquals( 1, cache.getRevalidationCount() );
+    }
+
+    public void testSingleFlight()
+            throws Exception
+    {
+        handler.delay = 200;
+        final DownloadCache cache = new DownloadCache( dir, 1024 * 1024 );
+        final URL url = url( "/shared" );
+        Thread[] threads = new Thread[6];
+        for ( int i = 0; i < threads.length; i++ )
+        {
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        cache.get( url );
+                    }
+                    catch ( IOException e )
+                    {
+                        throw new RuntimeException( e );
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        assertEquals( 1, handler.requests.get() );
+    }
+
+    public void testEvictionAndDeduplication()
+            throws IOException
+    {
+        DownloadCache cache = new DownloadCache( dir, 50 );
+        cache.get( url( "/one" ) );
+        cache.get( url( "/two" ) );
+        cache.get( url( "/same?x" ) );
+        cache.get( url( "/same?y" ) );
+        assertEquals( 0, cache.getEvictionCount() );
+
+        cache.get( url( "/three" ) );
+        assertEquals( 1, cache.getEvictionCount() );
+        assertTrue( cache.getSize() <= 50 );
+
+        DownloadCache reopened = new DownloadCache( dir, 50 );
+        assertEquals( cache.getSize(), reopened.getSize() );
+        reopened.get( url( "/three" ) );
+        assertEquals( 1, reopened.getRevalidationCount() );
+    }
+
+    public void testOpenStreamSurvivesEviction()
+            throws IOException
+    {
+        DownloadCache cache = new DownloadCache( dir, 20 );
+        try ( InputStream in = cache.openStream( url( "/one" ) ) )
+        {
+            cache.get( url( "/two" ) );
+            assertEquals( 1, cache.getEvictionCount() );
+            assertEquals( "content of /one\n", IOUtil.toString( in ) );
+        }
+
+        DownloadCache reopened = new DownloadCache( dir, 20 );
+        assertEquals( cache.getSize(), reopened.getSize() );
+        reopened.get( url( "/one" ) );
+        assertEquals( 0, reopened.getRevalidationCount() );
+    }
+
+    static class TestHandler
+        implements HttpHandler
+    {
+        volatile String version = "1";
+        volatile long delay;
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger fullResponses = new AtomicInteger();
+
+        public void handle( HttpExchange exchange )
+                throws IOException
+        {
+            requests.incrementAndGet();
+            try
+            {
+                Thread.sleep( delay );
+            }
+            catch ( InterruptedException e )
+            {
+                // carry on
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            String etag = "\"" + path + "-" + version + "\"";
+            exchange.getResponseHeaders().set( "ETag", etag );
+            if ( etag.equals( exchange.getRequestHeaders().getFirst( "If-None-Match" ) ) )
+            {
+                exchange.sendResponseHeaders( 304, -1 );
+                exchange.close();
+                return;
+            }
+
+            fullResponses.incrementAndGet();
+            String content = "content of " + path + ( "1".equals( version ) ? "" : " v" + version );
+            byte[] body = content.getBytes( Charset.forName( "UTF-8" ) );
+            exchange.sendResponseHeaders( 200, body.length );
+            OutputStream out = exchange.getResponseBody();
+            out.write( body );
+            exchange.close();
+        }
+    }
+}
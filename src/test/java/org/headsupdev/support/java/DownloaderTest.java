@@ -0,0 +1,267 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for downloading files against a local HTTP server.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class DownloaderTest
+    extends TestCase
+{
+    private HttpServer server;
+    private TestHandler handler;
+    private File dir;
+
+    protected void setUp()
+            throws Exception
+    {
+        handler = new TestHandler();
+        server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+        server.createContext( "/", handler );
+        server.start();
+
+        dir = FileUtil.createTempDir( "download", "" );
+    }
+
+    protected void tearDown()
+            throws Exception
+    {
+        server.stop( 0 );
+        FileUtil.delete( dir );
+    }
+
+    private URL url( String path )
+            throws IOException
+    {
+        return new URL( "http://127.0.0.1:" + server.getAddress().getPort() + path );
+    }
+
+    public void testParallelDownload()
+            throws IOException
+    {
+        File file = new File( dir, "data.bin" );
+        FileUtil.downloadToFile( url( "/data.bin" ), file );
+
+        assertTrue( Arrays.equals( handler.content, Files.readAllBytes( file.toPath() ) ) );
+        // the first segment comes from the initial request
+        assertEquals( 3, handler.ranges.size() );
+        assertEquals( 1, handler.fullDownloads.get() );
+        assertEquals( 0, handler.heads.get() );
+        assertEquals( 1, dir.list().length );
+    }
+
+    public void testSmallDownloadUsesOneRequest()
+            throws IOException
+    {
+        handler.content = new byte[1000];
+        new Random( 5 ).nextBytes( handler.content );
+        File file = new File( dir, "small.bin" );
+        FileUtil.downloadToFile( url( "/small.bin" ), file );
+
+        assertTrue( Arrays.equals( handler.content, Files.readAllBytes( file.toPath() ) ) );
+        assertEquals( 0, handler.ranges.size() );
+        assertEquals( 1, handler.fullDownloads.get() );
+        assertEquals( 0, handler.heads.get() );
+        assertEquals( 1, dir.list().length );
+    }
+
+    public void testConcurrentDownloadsOfSameFile()
+            throws Exception
+    {
+        final File file = new File( dir, "data.bin" );
+        final List<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+        Thread[] threads = new Thread[3];
+        for ( int i = 0; i < threads.length; i++ )
+        {
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        FileUtil.downloadToFile( url( "/data.bin" ), file );
+                    }
+                    catch ( Throwable e )
+                    {
+                        failures.add( e );
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        assertEquals( failures.toString(), 0, failures.size() );
+        assertTrue( Arrays.equals( handler.content, Files.readAllBytes( file.toPath() ) ) );
+        assertEquals( 1, dir.list().length );
+    }
+
+    public void testDownloadWithoutRanges()
+            throws IOException
+    {
+        handler.acceptRanges = false;
+        File file = new File( dir, "data.bin" );
+        FileUtil.downloadToFile( url( "/data.bin" ), file );
+
+        assertTrue( Arrays.equals( handler.content, Files.readAllBytes( file.toPath() ) ) );
+        assertEquals( 0, handler.ranges.size() );
+    }
+
+    public void testResumeAfterFailure()
+            throws IOException
+    {
+        handler.failAfter = 100 * 1024;
+        File file = new File( dir, "data.bin" );
+        try
+        {
+            FileUtil.downloadToFile( url( "/data.bin" ), file, 2 );
+            fail();
+        }
+        catch ( IOException e )
+        {
+            // expected, the server keeps dropping connections
+        }
+        assertFalse( file.exists() );
+        assertTrue( new File( dir, "data.bin.part" ).exists() );
+
+        handler.failAfter = 0;
+        handler.ranges.clear();
+        FileUtil.downloadToFile( url( "/data.bin" ), file, 2 );
+
+        assertTrue( Arrays.equals( handler.content, Files.readAllBytes( file.toPath() ) ) );
+        for ( String range : handler.ranges )
+        {
+            assertFalse( range, range.startsWith( "bytes=0-" ) );
+        }
+        assertEquals( 1, dir.list().length );
+    }
+
+    public void testRetriesBusyServer()
+            throws IOException
+    {
+        handler.unavailable.set( 3 );
+        File file = new File( dir, "data.bin" );
+        FileUtil.downloadToFile( url( "/data.bin" ), file, 2 );
+
+        assertTrue( Arrays.equals( handler.content, Files.readAllBytes( file.toPath() ) ) );
+        assertEquals( 0, handler.unavailable.get() );
+        // the busy replies must not restart the download over a single connection
+        assertEquals( 1, handler.fullDownloads.get() );
+    }
+
+    static class TestHandler
+        implements HttpHandler
+    {
+        volatile byte[] content = new byte[5 * 1024 * 1024 + 123];
+        volatile boolean acceptRanges = true;
+        volatile int failAfter;
+        AtomicInteger unavailable = new AtomicInteger();
+        AtomicInteger fullDownloads = new AtomicInteger();
+        AtomicInteger heads = new AtomicInteger();
+        List<String> ranges = new CopyOnWriteArrayList<String>();
+
+        TestHandler()
+        {
+            new Random( 3 ).nextBytes( content );
+        }
+
+        public void handle( HttpExchange exchange )
+                throws IOException
+        {
+            if ( acceptRanges )
+            {
+                exchange.getResponseHeaders().set( "Accept-Ranges", "bytes" );
+            }
+            exchange.getResponseHeaders().set( "ETag", "\"v1\"" );
+
+            if ( "HEAD".equals( exchange.getRequestMethod() ) )
+            {
+                heads.incrementAndGet();
+                exchange.getResponseHeaders().set( "Content-Length", String.valueOf( content.length ) );
+                exchange.sendResponseHeaders( 200, -1 );
+                exchange.close();
+                return;
+            }
+
+            int start = 0;
+            int end = content.length;
+            String range = exchange.getRequestHeaders().getFirst( "Range" );
+            if ( acceptRanges && range != null )
+            {
+                for ( int busy = unavailable.get(); busy > 0; busy = unavailable.get() )
+                {
+                    if ( unavailable.compareAndSet( busy, busy - 1 ) )
+                    {
+                        exchange.sendResponseHeaders( 503, -1 );
+                        exchange.close();
+                        return;
+                    }
+                }
+
+                ranges.add( range );
+                String[] bounds = range.substring( "bytes=".length() ).split( "-" );
+                start = Integer.parseInt( bounds[0] );
+                end = Integer.parseInt( bounds[1] ) + 1;
+                exchange.getResponseHeaders().set( "Content-Range", "bytes " + start + "-" + ( end - 1 ) + "/" +
+                        content.length );
+                exchange.sendResponseHeaders( 206, end - start );
+            }
+            else
+            {
+                fullDownloads.incrementAndGet();
+                exchange.sendResponseHeaders( 200, content.length );
+            }
+
+            OutputStream out = exchange.getResponseBody();
+            try
+            {
+                int limit = failAfter > 0 ? Math.min( end, start + failAfter ) : end;
+                out.write( content, start, limit - start );
+                out.flush();
+            }
+            finally
+            {
+                exchange.close();
+            }
+        }
+    }
+}
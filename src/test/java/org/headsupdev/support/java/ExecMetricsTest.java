@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the exec listeners and metrics.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ExecMetricsTest
+    extends TestCase
+{
+    public void testListenerReceivesEvents()
+            throws Exception
+    {
+        final List<ExecEvent> started = Collections.synchronizedList( new ArrayList<ExecEvent>() );
+        final List<ExecEvent> finished = Collections.synchronizedList( new ArrayList<ExecEvent>() );
+        ExecListener listener = new ExecListener()
+        {
+            public void processStarted( ExecEvent event )
+            {
+                event.setAttachment( "span" );
+                started.add( event );
+            }
+
+            public void processFinished( ExecEvent event )
+            {
+                finished.add( event );
+            }
+
+            public void processFailed( ExecEvent event, IOException failure )
+            {
+            }
+        };
+        ExecUtil.addListener( listener );
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ExecProcess process = ExecUtil.start( Arrays.asList( "sh", "-c", "echo hello; echo no >&2; exit 3" ),
+                    null, out, null );
+            assertEquals( 3, process.waitFor() );
+        }
+        finally
+        {
+            ExecUtil.removeListener( listener );
+        }
+
+        assertEquals( 1, started.size() );
+        assertEquals( 1, finished.size() );
+        ExecEvent event = finished.get( 0 );
+        assertSame( started.get( 0 ), event );
+        assertEquals( "span", event.getAttachment() );
+        assertEquals( Arrays.asList( "sh", "-c", "echo hello; echo no >&2; exit 3" ), event.getCommand() );
+        assertTrue( event.getPid() > 0 );
+        assertEquals( 3, event.getExitCode() );
+        assertTrue( event.getSpawnNanos() > 0 );
+        assertTrue( event.getWallNanos() >= event.getSpawnNanos() );
+        assertEquals( 6, event.getOutputBytes() );
+        // the error output was discarded by the OS, so was not counted
+        assertEquals( -1, event.getErrorBytes() );
+    }
+
+    public void testMetrics()
+            throws Exception
+    {
+        ExecMetrics metrics = new ExecMetrics();
+        ExecUtil.addListener( metrics );
+        try
+        {
+            assertEquals( 0, ExecUtil.execute( Arrays.asList( "echo", "test" ) ) );
+            assertEquals( 1, ExecUtil.execute( Arrays.asList( "false" ) ) );
+
+            try
+            {
+                ExecUtil.execute( Arrays.asList( "so-never-gonna-call-a-file-this" ) );
+                fail();
+            }
+            catch ( IOException e )
+            {
+                // expected
+            }
+
+            ExecProcess slow = ExecUtil.start( Arrays.asList( "sleep", "30" ), null );
+            slow.setTimeout( 100, TimeUnit.MILLISECONDS, 1, TimeUnit.SECONDS );
+            assertEquals( ExecUtil.EXECUTION_TIMED_OUT, slow.waitFor() );
+        }
+        finally
+        {
+            ExecUtil.removeListener( metrics );
+        }
+
+        assertEquals( 3, metrics.getStartedCount() );
+        assertEquals( 1, metrics.getFailedCount() );
+        assertEquals( 3, metrics.getCompletedCount() );
+        assertEquals( 1, metrics.getTimedOutCount() );
+        assertEquals( 0, metrics.getRunningCount() );
+        assertTrue( metrics.getMaxRunningCount() >= 1 );
+        assertTrue( metrics.getAverageSpawnMillis() > 0 );
+        assertTrue( metrics.getAverageWallMillis() > 0 );
+
+        Map<Integer, Long> codes = metrics.getExitCodeCounts();
+        assertEquals( Long.valueOf( 1 ), codes.get( 0 ) );
+        assertEquals( Long.valueOf( 1 ), codes.get( 1 ) );
+        assertEquals( Long.valueOf( 1 ), codes.get( ExecUtil.EXECUTION_TIMED_OUT ) );
+
+        Map<String, Number> exported = metrics.toMap();
+        assertEquals( 3L, exported.get( "exec.started" ) );
+        assertEquals( 1L, exported.get( "exec.exit.0" ) );
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tests for building and running exec requests.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ExecRequestTest
+    extends TestCase
+{
+    public void testEnvironmentOverridesAndRemovals()
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int ret = new ExecRequest( "printenv", "EXEC_REQUEST_TEST" ).setEnvironment( "EXEC_REQUEST_TEST", "value" )
+                .setOutput( ExecOutput.toStream( out ) ).run();
+        assertEquals( 0, ret );
+        assertEquals( "value\n", out.toString() );
+
+        out.reset();
+        ret = new ExecRequest( "printenv", "HOME" ).removeEnvironment( "HOME" )
+                .setOutput( ExecOutput.toStream( out ) ).run();
+        assertEquals( 1, ret );
+        assertEquals( "", out.toString() );
+    }
+
+    public void testDirectory()
+            throws Exception
+    {
+        File dir = FileUtil.createTempDir( "execrequest", "" );
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ExecProcess process = new ExecRequest( "pwd" ).setDirectory( dir )
+                    .setOutput( ExecOutput.toStream( out ) ).start();
+            assertEquals( 0, process.waitFor() );
+            assertEquals( dir.getCanonicalPath(), new File( out.toString().trim() ).getCanonicalPath() );
+        }
+        finally
+        {
+            FileUtil.delete( dir );
+        }
+    }
+
+    public void testResolvesExecutable()
+    {
+        File echo = new File( new ExecRequest( "echo" ).getCommand().get( 0 ) );
+        assertTrue( echo.isAbsolute() );
+        assertEquals( echo, PathIndex.getDefault().lookup( "echo" ) );
+
+        assertEquals( "echo", new ExecRequest( "echo" ).setResolveExecutable( false ).getCommand().get( 0 ) );
+        assertEquals( "./echo", new ExecRequest( "./echo" ).getCommand().get( 0 ) );
+        assertEquals( "echo", new ExecRequest( "echo" ).removeEnvironment( "PATH" ).getCommand().get( 0 ) );
+    }
+
+    public void testLimitsCachedPaths()
+    {
+        for ( int i = 0; i < 50; i++ )
+        {
+            new ExecRequest( "echo" ).setEnvironment( "PATH", "/bin:/usr/bin:/tmp/job-" + i ).getCommand();
+        }
+        assertTrue( ExecRequest.getPathIndexCount() <= 16 );
+    }
+
+    public void testResolvesInOverriddenPath()
+            throws Exception
+    {
+        File dir = FileUtil.createTempDir( "execrequest", "" );
+        try
+        {
+            File tool = new File( dir, "exec-request-tool" );
+            FileUtil.writeToFile( "#!/bin/sh\necho from the tool\n", tool );
+            assertTrue( tool.setExecutable( true ) );
+
+            ExecRequest request = new ExecRequest( "exec-request-tool" )
+                    .setEnvironment( "PATH", dir.getAbsolutePath() );
+            assertEquals( tool.getAbsolutePath(), request.getCommand().get( 0 ) );
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals( 0, request.setOutput( ExecOutput.toStream( out ) ).run() );
+            assertEquals( "from the tool\n", out.toString() );
+        }
+        finally
+        {
+            FileUtil.delete( dir );
+        }
+    }
+}
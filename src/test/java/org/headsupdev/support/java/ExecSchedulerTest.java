@@ -0,0 +1,182 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the bounded command scheduler.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ExecSchedulerTest
+    extends TestCase
+{
+    public void testLimitsConcurrency()
+            throws Exception
+    {
+        ExecScheduler scheduler = new ExecScheduler( 2 );
+        List<CompletableFuture<Integer>> results = new ArrayList<CompletableFuture<Integer>>();
+        for ( int i = 0; i < 6; i++ )
+        {
+            results.add( scheduler.submit( Arrays.asList( "sleep", "0.2" ), null ) );
+        }
+
+        assertEquals( 2, scheduler.getRunningCount() );
+        assertEquals( 4, scheduler.getQueueDepth() );
+        for ( CompletableFuture<Integer> result : results )
+        {
+            assertEquals( 0, result.get( 10, TimeUnit.SECONDS ).intValue() );
+        }
+
+        assertEquals( 6, scheduler.getCompletedCount() );
+        assertEquals( 0, scheduler.getQueueDepth() );
+        assertTrue( scheduler.getMaxWaitMillis() >= 200 );
+        assertTrue( scheduler.getAverageRunMillis() >= 200 );
+    }
+
+    public void testPriorityAndFairness()
+            throws Exception
+    {
+        ExecScheduler scheduler = new ExecScheduler( 1 );
+        final List<String> order = Collections.synchronizedList( new ArrayList<String>() );
+
+        // hold the only slot whilst the rest are queued
+        CompletableFuture<Integer> blocker = scheduler.submit( Arrays.asList( "sleep", "0.2" ), null );
+        List<CompletableFuture<Integer>> results = new ArrayList<CompletableFuture<Integer>>();
+        results.add( scheduler.submit( "a", 0, recording( order, "a1" ) ) );
+        results.add( scheduler.submit( "a", 0, recording( order, "a2" ) ) );
+        results.add( scheduler.submit( "a", 0, recording( order, "a3" ) ) );
+        results.add( scheduler.submit( "b", 0, recording( order, "b1" ) ) );
+        results.add( scheduler.submit( "c", 5, recording( order, "urgent" ) ) );
+
+        blocker.get( 10, TimeUnit.SECONDS );
+        for ( CompletableFuture<Integer> result : results )
+        {
+            result.get( 10, TimeUnit.SECONDS );
+        }
+        assertEquals( Arrays.asList( "urgent", "a1", "b1", "a2", "a3" ), order );
+    }
+
+    public void testCancelQueued()
+            throws Exception
+    {
+        ExecScheduler scheduler = new ExecScheduler( 1 );
+        CompletableFuture<Integer> running = scheduler.submit( Arrays.asList( "sleep", "30" ), null );
+        CompletableFuture<Integer> queued = scheduler.submit( Arrays.asList( "true" ), null );
+
+        queued.cancel( true );
+        assertEquals( 0, scheduler.getQueueDepth() );
+
+        running.cancel( true );
+        long deadline = System.currentTimeMillis() + 10000;
+        while ( scheduler.getRunningCount() > 0 && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+        assertEquals( 0, scheduler.getRunningCount() );
+        assertEquals( 1, scheduler.getStartedCount() );
+    }
+
+    public void testForgetsGroupsWithNothingQueued()
+            throws Exception
+    {
+        ExecScheduler scheduler = new ExecScheduler( 1 );
+        CompletableFuture<Integer> running = scheduler.submit( "blocker", 0, Arrays.asList( "sleep", "0.2" ),
+                null, null, null );
+        List<CompletableFuture<Integer>> results = new ArrayList<CompletableFuture<Integer>>();
+        for ( int i = 0; i < 5; i++ )
+        {
+            results.add( scheduler.submit( "job" + i, 0, Arrays.asList( "true" ), null, null, null ) );
+        }
+        CompletableFuture<Integer> cancelled = scheduler.submit( "cancelled", 0, Arrays.asList( "true" ), null,
+                null, null );
+        assertEquals( 6, scheduler.getQueuedGroupCount() );
+
+        cancelled.cancel( true );
+        assertEquals( 5, scheduler.getQueuedGroupCount() );
+
+        running.get( 10, TimeUnit.SECONDS );
+        for ( CompletableFuture<Integer> result : results )
+        {
+            result.get( 10, TimeUnit.SECONDS );
+        }
+        assertEquals( 0, scheduler.getQueuedGroupCount() );
+    }
+
+    public void testFailedStartsAreCountedSeparately()
+            throws Exception
+    {
+        ExecScheduler scheduler = new ExecScheduler( 1 );
+        CompletableFuture<Integer> blocker = scheduler.submit( Arrays.asList( "sleep", "0.2" ), null );
+        CompletableFuture<Integer> failed = scheduler.submit( Arrays.asList( "so-never-gonna-call-a-file-this" ),
+                null );
+        final List<String> threads = Collections.synchronizedList( new ArrayList<String>() );
+        CompletableFuture<Integer> next = scheduler.submit( "", 0, new Callable<ExecProcess>()
+        {
+            public ExecProcess call()
+                throws Exception
+            {
+                threads.add( Thread.currentThread().getName() );
+                return ExecUtil.start( Arrays.asList( "true" ), null );
+            }
+        } );
+
+        blocker.get( 10, TimeUnit.SECONDS );
+        try
+        {
+            failed.get( 10, TimeUnit.SECONDS );
+            fail( "A missing command should fail to start" );
+        }
+        catch ( ExecutionException e )
+        {
+            // expected
+        }
+        assertEquals( 0, next.get( 10, TimeUnit.SECONDS ).intValue() );
+
+        assertEquals( 2, scheduler.getStartedCount() );
+        assertEquals( 1, scheduler.getFailedStartCount() );
+        assertEquals( 2, scheduler.getCompletedCount() );
+        // started once the blocker finished, but not on the thread that noticed it finish
+        assertEquals( Arrays.asList( "ExecScheduler dispatch" ), threads );
+    }
+
+    private Callable<ExecProcess> recording( final List<String> order, final String name )
+    {
+        return new Callable<ExecProcess>()
+        {
+            public ExecProcess call()
+                throws Exception
+            {
+                order.add( name );
+                return ExecUtil.start( Arrays.asList( "true" ), null );
+            }
+        };
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A simple benchmark of the overhead ExecUtil adds to short commands.
+ * Run the main method with an optional count of invocations, which defaults to 1000.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class ExecUtilBenchmark
+{
+    public static void main( String[] args )
+            throws IOException
+    {
+        int count = args.length > 0 ? Integer.parseInt( args[0] ) : 1000;
+        List<String> commands = Arrays.asList( "true" );
+
+        // warm up the JVM and the process spawning path
+        for ( int i = 0; i < 20; i++ )
+        {
+            ExecUtil.execute( commands );
+        }
+
+        long start = System.nanoTime();
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( ExecUtil.execute( commands ) != 0 )
+            {
+                throw new IllegalStateException( "Command failed" );
+            }
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+
+        System.out.println( "Executed " + count + " commands in " + millis + "ms, " +
+                ( (double) millis / count ) + "ms per command" );
+    }
+}
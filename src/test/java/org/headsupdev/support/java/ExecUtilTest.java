@@ -18,11 +18,19 @@ package org.headsupdev.support.java;
 
 import junit.framework.TestCase;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Test methods for the execution utilities. Let's make sure we're tight on our resources!
@@ -65,6 +73,264 @@ public class ExecUtilTest
         assertEquals( "test\n", out.toString() );
     }
 
+    public void testExecWithExecutor()
+            throws IOException
+    {
+        final AtomicInteger tasks = new AtomicInteger();
+        Executor executor = new Executor()
+        {
+            public void execute( Runnable command )
+            {
+                tasks.incrementAndGet();
+                new Thread( command ).start();
+            }
+        };
+        StringWriter out = new StringWriter();
+
+        int ret = ExecUtil.execute( Arrays.asList( "echo", "test" ), null, out, null, executor );
+        assertEquals( 0, ret );
+        assertEquals( "test\n", out.toString() );
+        // the null error output is discarded by the OS so only the output is copied
+        assertEquals( 1, tasks.get() );
+    }
+
+    public void testExecPreservesCarriageReturns()
+    {
+        StringWriter out = new StringWriter();
+
+        int ret = ExecUtil.executeLoggingExceptions( Arrays.asList( "printf", "10%%\\r50%%\\r100%%" ), out, null );
+        assertEquals( 0, ret );
+        assertEquals( "10%\r50%\r100%", out.toString() );
+    }
+
+    public void testExecToStreams()
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int ret = ExecUtil.executeToStreams( Arrays.asList( "printf", "\\001\\377\\000" ), null, out, null );
+        assertEquals( 0, ret );
+        assertTrue( Arrays.equals( new byte[]{ 1, (byte) 0xff, 0 }, out.toByteArray() ) );
+    }
+
+    public void testStart()
+            throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExecProcess process = ExecUtil.start( Arrays.asList( "sh", "-c", "echo started; exit 3" ), null, out, null );
+
+        assertEquals( 3, process.onExit().get( 10, TimeUnit.SECONDS ).intValue() );
+        assertEquals( "started\n", out.toString() );
+        assertFalse( process.isTimedOut() );
+    }
+
+    public void testTimeoutStopsProcessTree()
+            throws Exception
+    {
+        // the background sleep holds stdout open, so the command only completes once the whole tree is stopped
+        ExecProcess process = ExecUtil.start( Arrays.asList( "sh", "-c", "sleep 30 & sleep 30" ), null )
+                .setTimeout( 200, TimeUnit.MILLISECONDS, 2, TimeUnit.SECONDS );
+
+        assertEquals( ExecUtil.EXECUTION_TIMED_OUT, process.onExit().get( 10, TimeUnit.SECONDS ).intValue() );
+        assertTrue( process.isTimedOut() );
+        assertFalse( process.isAlive() );
+    }
+
+    public void testCancelStopsProcess()
+            throws Exception
+    {
+        ExecProcess process = ExecUtil.start( Arrays.asList( "sleep", "30" ), null );
+        process.onExit().cancel( true );
+
+        assertTrue( process.getProcess().waitFor( 10, TimeUnit.SECONDS ) );
+        assertEquals( ExecUtil.EXECUTION_INTERRUPTED, process.waitFor() );
+    }
+
+    public void testInterruptDoesNotWaitForEscapedProcesses()
+            throws Exception
+    {
+        // the backgrounded sleep leaves the tree when its sub-shell exits, but keeps the output pipe open
+        final List<String> commands = Arrays.asList( "sh", "-c", "( sleep 15 & ); sleep 15" );
+        final AtomicInteger ret = new AtomicInteger();
+        Thread runner = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    ret.set( ExecUtil.execute( commands, null, new StringWriter(), new StringWriter() ) );
+                }
+                catch ( IOException e )
+                {
+                    ret.set( 0 );
+                }
+            }
+        };
+        runner.start();
+        Thread.sleep( 500 );
+
+        runner.interrupt();
+        runner.join( 10000 );
+        assertFalse( runner.isAlive() );
+        assertEquals( ExecUtil.EXECUTION_INTERRUPTED, ret.get() );
+    }
+
+    public void testStdinFromStreamAndFile()
+            throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExecProcess process = ExecUtil.start( Arrays.asList( "wc", "-c" ), null,
+                ExecInput.fromBytes( "hello".getBytes( "UTF-8" ) ), out, null );
+        assertEquals( 0, process.waitFor() );
+        assertEquals( "5", out.toString( "UTF-8" ).trim() );
+
+        File file = File.createTempFile( "exec", ".txt" );
+        try
+        {
+            FileUtil.writeToFile( "from a file", file );
+            out.reset();
+            process = ExecUtil.start( Arrays.asList( "cat" ), null, ExecInput.fromFile( file ), out, null );
+            assertEquals( 0, process.waitFor() );
+            assertEquals( "from a file\n", out.toString( "UTF-8" ) );
+        }
+        finally
+        {
+            FileUtil.delete( file );
+        }
+    }
+
+    public void testStdinReadFailureFailsCommand()
+            throws Exception
+    {
+        InputStream broken = new InputStream()
+        {
+            private boolean started;
+
+            public int read()
+                throws IOException
+            {
+                if ( started )
+                {
+                    throw new IOException( "Source failed" );
+                }
+                started = true;
+                return 'a';
+            }
+        };
+        // without the failure the command would carry on well after its input ended
+        ExecProcess process = ExecUtil.start( Arrays.asList( "sh", "-c", "cat; sleep 10" ), null,
+                ExecInput.fromStream( broken ), new ByteArrayOutputStream(), null );
+        try
+        {
+            process.onExit().get( 5, TimeUnit.SECONDS );
+            fail( "A command whose input could not be read should fail" );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof IOException );
+        }
+        assertEquals( ExecUtil.EXECUTION_FAILED, process.waitFor() );
+    }
+
+    public void testPipeline()
+            throws Exception
+    {
+        List<List<String>> commands = Arrays.asList( Arrays.asList( "seq", "100" ),
+                Arrays.asList( "grep", "7" ), Arrays.asList( "sh", "-c", "wc -l; exit 2" ) );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ExecPipeline pipeline = ExecUtil.startPipeline( commands, null, null, out, null );
+        assertEquals( Arrays.asList( 0, 0, 2 ), pipeline.waitFor() );
+        assertEquals( "19", out.toString( "UTF-8" ).trim() );
+    }
+
+    public void testRedirectToFile()
+            throws Exception
+    {
+        final AtomicInteger tasks = new AtomicInteger();
+        Executor executor = new Executor()
+        {
+            public void execute( Runnable command )
+            {
+                tasks.incrementAndGet();
+                new Thread( command ).start();
+            }
+        };
+        File file = File.createTempFile( "exec", ".txt" );
+        try
+        {
+            ExecProcess process = ExecUtil.start( Arrays.asList( "sh", "-c", "echo out; echo err >&2" ), null, null,
+                    ExecOutput.toFile( file ), ExecOutput.discard(), executor );
+            assertEquals( 0, process.waitFor() );
+            assertEquals( "out\n", FileUtil.toString( file ) );
+            assertEquals( 0, tasks.get() );
+
+            process = ExecUtil.start( Arrays.asList( "sh", "-c", "echo out; echo err >&2" ), null, null,
+                    ExecOutput.appendTo( file ), ExecOutput.mergeWithOutput() );
+            assertEquals( 0, process.waitFor() );
+            assertEquals( "out\nout\nerr\n", FileUtil.toString( file ) );
+        }
+        finally
+        {
+            FileUtil.delete( file );
+        }
+    }
+
+    public void testPipelineErrorsToFile()
+            throws Exception
+    {
+        List<List<String>> commands = Arrays.asList( Arrays.asList( "sh", "-c", "echo one >&2; echo data" ),
+                Arrays.asList( "sh", "-c", "cat >/dev/null; echo two >&2" ) );
+        File file = File.createTempFile( "exec", ".txt" );
+        try
+        {
+            FileUtil.writeToFile( "old content", file );
+            ExecPipeline pipeline = ExecUtil.startPipeline( commands, null, null, ExecOutput.discard(),
+                    ExecOutput.toFile( file ) );
+            assertEquals( Arrays.asList( 0, 0 ), pipeline.waitFor() );
+            assertEquals( "one\ntwo\n", FileUtil.toString( file ) );
+        }
+        finally
+        {
+            FileUtil.delete( file );
+        }
+    }
+
+    public void testPipelineMergesErrorsWithOutput()
+            throws Exception
+    {
+        // the first error must not feed into wc, it is written before wc can finish
+        List<List<String>> commands = Arrays.asList( Arrays.asList( "sh", "-c", "echo ERR >&2; echo data" ),
+                Arrays.asList( "sh", "-c", "wc -l; echo last >&2" ) );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExecPipeline pipeline = ExecUtil.startPipeline( commands, null, null, ExecOutput.toStream( out ),
+                ExecOutput.mergeWithOutput() );
+        assertEquals( Arrays.asList( 0, 0 ), pipeline.waitFor() );
+        assertEquals( Arrays.asList( "1", "ERR", "last" ), sortedLines( out.toString() ) );
+
+        File file = File.createTempFile( "exec", ".txt" );
+        try
+        {
+            FileUtil.writeToFile( "old content", file );
+            pipeline = ExecUtil.startPipeline( commands, null, null, ExecOutput.toFile( file ),
+                    ExecOutput.mergeWithOutput() );
+            assertEquals( Arrays.asList( 0, 0 ), pipeline.waitFor() );
+            assertEquals( Arrays.asList( "1", "ERR", "last" ), sortedLines( FileUtil.toString( file ) ) );
+        }
+        finally
+        {
+            FileUtil.delete( file );
+        }
+    }
+
+    private static List<String> sortedLines( String text )
+    {
+        // the stages' output is copied concurrently, and wc pads its count on some platforms
+        List<String> ret = new ArrayList<String>( Arrays.asList( text.replace( " ", "" ).split( "\n" ) ) );
+        Collections.sort( ret );
+        return ret;
+    }
+
     public void testThrowsException()
     {
         List<String> commands = Arrays.asList( "so-never-gonna-call-a-file-this" );
@@ -19,6 +19,11 @@ package org.headsupdev.support.java;
 import junit.framework.TestCase;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Some testing of the FileUtil class
@@ -56,4 +61,316 @@ public class FileUtilTest
         assertEquals( javaExe.getParentFile(), javaDir );
         assertEquals( javaDir.getParentFile(), javaParentDir );
     }
+
+    public void testToStringSmallFile()
+            throws IOException
+    {
+        File file = File.createTempFile( "fileutil", ".txt" );
+        try
+        {
+            FileUtil.writeToFile( "line one\r\nline two", file );
+            assertEquals( "line one\nline two\n", FileUtil.toString( file ) );
+        }
+        finally
+        {
+            FileUtil.delete( file );
+        }
+    }
+
+    public void testToStringMappedFile()
+            throws IOException
+    {
+        StringBuilder content = new StringBuilder();
+        while ( content.length() <= FileUtil.MAP_THRESHOLD )
+        {
+            content.append( "some text\r" );
+        }
+
+        File file = File.createTempFile( "fileutil", ".txt" );
+        try
+        {
+            FileUtil.writeToFile( content.toString(), file );
+            assertEquals( content.toString().replace( '\r', '\n' ), FileUtil.toString( file ) );
+        }
+        finally
+        {
+            FileUtil.delete( file );
+        }
+    }
+
+    public void testMapReadOnly()
+            throws IOException
+    {
+        File file = File.createTempFile( "fileutil", ".txt" );
+        try
+        {
+            FileUtil.writeToFile( "abc", file );
+
+            MappedByteBuffer buffer = FileUtil.mapReadOnly( file );
+            assertTrue( buffer.isReadOnly() );
+            assertEquals( 4, buffer.remaining() );
+            assertEquals( 'a', buffer.get( 0 ) );
+        }
+        finally
+        {
+            FileUtil.delete( file );
+        }
+    }
+
+    public void testDeleteTree()
+            throws IOException
+    {
+        File root = FileUtil.createTempDir( "fileutil", "" );
+        for ( int i = 0; i < 3; i++ )
+        {
+            File dir = new File( root, "dir" + i );
+            FileUtil.mkdir( dir );
+            for ( int j = 0; j < 300; j++ )
+            {
+                FileUtil.writeToFile( "12345", new File( dir, "file" + j ) );
+            }
+        }
+
+        DeleteResult result = FileUtil.deleteTree( root );
+        assertFalse( root.exists() );
+        assertEquals( 900, result.getFileCount() );
+        assertEquals( 4, result.getDirectoryCount() );
+        assertEquals( 900 * 6, result.getByteCount() );
+    }
+
+    public void testDeleteTreeDoesNotFollowLinks()
+            throws IOException
+    {
+        File root = FileUtil.createTempDir( "fileutil", "" );
+        File target = FileUtil.createTempDir( "fileutil", "" );
+        try
+        {
+            File kept = new File( target, "kept" );
+            FileUtil.writeToFile( "keep me", kept );
+            Files.createSymbolicLink( new File( root, "link" ).toPath(), target.toPath() );
+
+            FileUtil.delete( root );
+            assertFalse( root.exists() );
+            assertTrue( kept.exists() );
+        }
+        finally
+        {
+            FileUtil.delete( target );
+        }
+    }
+
+    public void testDeleteDeepTree()
+            throws IOException
+    {
+        File root = FileUtil.createTempDir( "fileutil", "" );
+        Path deepest = root.toPath();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            deepest = deepest.resolve( "d" );
+        }
+        Files.createDirectories( deepest );
+
+        DeleteResult result = FileUtil.deleteTree( root );
+        assertFalse( root.exists() );
+        assertEquals( 1001, result.getDirectoryCount() );
+    }
+
+    public void testCopyTreeSkipsUpToDateFiles()
+            throws IOException
+    {
+        File source = FileUtil.createTempDir( "fileutil", "" );
+        File dest = new File( FileUtil.createTempDir( "fileutil", "" ), "copy" );
+        try
+        {
+            FileUtil.mkdir( new File( source, "sub" ) );
+            FileUtil.writeToFile( "one", new File( source, "one.txt" ) );
+            FileUtil.writeToFile( "two", new File( source, "sub/two.txt" ) );
+
+            CopyResult first = FileUtil.copyTree( source, dest, new CopyOptions().setVerifyContent( true ) );
+            assertEquals( 2, first.getCopiedCount() );
+            assertEquals( 8, first.getByteCount() );
+            assertEquals( "two\n", FileUtil.toString( new File( dest, "sub/two.txt" ) ) );
+
+            CopyResult second = FileUtil.copyTree( source, dest );
+            assertEquals( 0, second.getCopiedCount() );
+            assertEquals( 2, second.getSkippedCount() );
+
+            FileUtil.writeToFile( "changed", new File( source, "one.txt" ) );
+            CopyResult third = FileUtil.copyTree( source, dest );
+            assertEquals( 1, third.getCopiedCount() );
+            assertEquals( "changed\n", FileUtil.toString( new File( dest, "one.txt" ) ) );
+        }
+        finally
+        {
+            FileUtil.delete( source );
+            FileUtil.delete( dest.getParentFile() );
+        }
+    }
+
+    public void testCopyTreeMirror()
+            throws IOException
+    {
+        File source = FileUtil.createTempDir( "fileutil", "" );
+        File dest = FileUtil.createTempDir( "fileutil", "" );
+        try
+        {
+            FileUtil.writeToFile( "same", new File( source, "same.txt" ) );
+            FileUtil.writeToFile( "same", new File( dest, "same.txt" ) );
+            FileUtil.mkdir( new File( dest, "extra" ) );
+            FileUtil.writeToFile( "extra", new File( dest, "extra/file.txt" ) );
+
+            CopyResult result = FileUtil.copyTree( source, dest, new CopyOptions().setDeleteExtraneous( true )
+                    .setComparison( CopyOptions.Comparison.CONTENT ) );
+            assertEquals( 1, result.getSkippedCount() );
+            assertEquals( 1, result.getDeletedCount() );
+            assertFalse( new File( dest, "extra" ).exists() );
+        }
+        finally
+        {
+            FileUtil.delete( source );
+            FileUtil.delete( dest );
+        }
+    }
+
+    public void testCopyTreeReplacesDirectoryWithFile()
+            throws IOException
+    {
+        File source = FileUtil.createTempDir( "fileutil", "" );
+        File dest = FileUtil.createTempDir( "fileutil", "" );
+        try
+        {
+            FileUtil.writeToFile( "file", new File( source, "entry" ) );
+            FileUtil.mkdir( new File( dest, "entry" ) );
+            FileUtil.mkdir( new File( dest, "entry/sub" ) );
+            FileUtil.writeToFile( "nested", new File( dest, "entry/sub/file.txt" ) );
+
+            try
+            {
+                FileUtil.copyTree( source, dest );
+                fail( "A directory should not be replaced unless extraneous files are deleted" );
+            }
+            catch ( IOException e )
+            {
+                // expected
+            }
+            assertEquals( "nested\n", FileUtil.toString( new File( dest, "entry/sub/file.txt" ) ) );
+
+            CopyResult result = FileUtil.copyTree( source, dest, new CopyOptions().setDeleteExtraneous( true ) );
+            assertEquals( 1, result.getCopiedCount() );
+            assertEquals( 1, result.getDeletedCount() );
+            assertEquals( "file\n", FileUtil.toString( new File( dest, "entry" ) ) );
+        }
+        finally
+        {
+            FileUtil.delete( source );
+            FileUtil.delete( dest );
+        }
+    }
+
+    public void testScanTree()
+            throws IOException
+    {
+        File root = FileUtil.createTempDir( "fileutil", "" );
+        try
+        {
+            FileUtil.mkdir( new File( root, "sub" ) );
+            FileUtil.writeToFile( "small", new File( root, "small.txt" ) );
+            FileUtil.writeToFile( "a larger file", new File( root, "sub/large.txt" ) );
+            File old = new File( root, "sub/old.txt" );
+            FileUtil.writeToFile( "old", old );
+            assertTrue( old.setLastModified( System.currentTimeMillis() - 2 * 24 * 60 * 60 * 1000L ) );
+
+            ScanResult result = FileUtil.scanTree( root, new ScanOptions().setLargestFileCount( 2 ) );
+            assertTrue( result.isComplete() );
+            assertEquals( 3, result.getFileCount() );
+            assertEquals( 2, result.getDirectoryCount() );
+            assertEquals( 6 + 14 + 4, result.getByteCount() );
+
+            assertEquals( 2, result.getLargestFiles().size() );
+            assertEquals( new File( root, "sub/large.txt" ), result.getLargestFiles().get( 0 ).getFile() );
+            assertEquals( 6, result.getLargestFiles().get( 1 ).getSize() );
+
+            long[] ages = result.getAgeFileCounts();
+            assertEquals( 2, ages[0] );
+            assertEquals( 1, ages[2] );
+        }
+        finally
+        {
+            FileUtil.delete( root );
+        }
+    }
+
+    public void testScanTreeStopsAtLinkCycles()
+            throws IOException
+    {
+        File root = FileUtil.createTempDir( "fileutil", "" );
+        try
+        {
+            FileUtil.mkdir( new File( root, "sub" ) );
+            FileUtil.writeToFile( "file", new File( root, "sub/file.txt" ) );
+            Files.createSymbolicLink( new File( root, "sub/loop" ).toPath(), root.toPath() );
+
+            ScanResult unfollowed = FileUtil.scanTree( root );
+            assertEquals( 1, unfollowed.getFileCount() );
+            assertEquals( 1, unfollowed.getLinkCount() );
+
+            ScanResult followed = FileUtil.scanTree( root, new ScanOptions().setFollowLinks( true ) );
+            assertEquals( 1, followed.getFileCount() );
+            assertEquals( 2, followed.getDirectoryCount() );
+            assertEquals( 1, followed.getLinkCount() );
+            assertEquals( 0, followed.getFailureCount() );
+        }
+        finally
+        {
+            FileUtil.delete( root );
+        }
+    }
+
+    public void testScanTreeCountsFollowedFileLinksOnce()
+            throws IOException
+    {
+        File root = FileUtil.createTempDir( "fileutil", "" );
+        try
+        {
+            FileUtil.writeToFile( "file", new File( root, "file.txt" ) );
+            Files.createSymbolicLink( new File( root, "link.txt" ).toPath(), new File( root, "file.txt" ).toPath() );
+
+            ScanResult unfollowed = FileUtil.scanTree( root );
+            assertEquals( 1, unfollowed.getFileCount() );
+            assertEquals( 1, unfollowed.getLinkCount() );
+
+            ScanResult followed = FileUtil.scanTree( root, new ScanOptions().setFollowLinks( true ) );
+            assertEquals( 2, followed.getFileCount() );
+            assertEquals( 0, followed.getLinkCount() );
+            assertEquals( 10, followed.getByteCount() );
+        }
+        finally
+        {
+            FileUtil.delete( root );
+        }
+    }
+
+    public void testWriteToFileOptions()
+            throws IOException
+    {
+        Charset utf8 = Charset.forName( "UTF-8" );
+        File dir = FileUtil.createTempDir( "fileutil", "" );
+        try
+        {
+            File file = new File( dir, "out.txt" );
+            FileUtil.writeToFile( "caf\u00e9", file, utf8 );
+            assertEquals( 5, file.length() );
+
+            FileUtil.writeToFile( "!", file, utf8, WriteOption.APPEND, WriteOption.SYNC );
+            assertEquals( "caf\u00e9!\n", FileUtil.toString( file ) );
+
+            FileUtil.writeToFile( "replaced", file, utf8, WriteOption.ATOMIC, WriteOption.SYNC, WriteOption.NEWLINE );
+            assertEquals( "replaced\n", FileUtil.toString( file ) );
+            assertEquals( 1, dir.list().length );
+        }
+        finally
+        {
+            FileUtil.delete( dir );
+        }
+    }
 }
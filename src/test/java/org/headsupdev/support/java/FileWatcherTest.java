@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the file watcher, using both the watch service and polling.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class FileWatcherTest
+    extends TestCase
+{
+    private File root;
+    private BlockingQueue<FileChangeSet> batches = new LinkedBlockingQueue<FileChangeSet>();
+    private FileChangeListener listener = new FileChangeListener()
+    {
+        public void filesChanged( FileChangeSet changes )
+        {
+            batches.add( changes );
+        }
+    };
+
+    protected void setUp()
+            throws Exception
+    {
+        root = FileUtil.createTempDir( "watcher", "" );
+    }
+
+    protected void tearDown()
+            throws Exception
+    {
+        FileUtil.delete( root );
+    }
+
+    public void testWatchRecursively()
+            throws Exception
+    {
+        FileWatcher watcher = new FileWatcher( root ).setDebounce( 50, TimeUnit.MILLISECONDS );
+        watcher.addListener( listener );
+        watcher.start();
+        try
+        {
+            assertChanges( true, new File( root, "sub" ), new File( root, "sub/file.txt" ) );
+        }
+        finally
+        {
+            watcher.close();
+        }
+    }
+
+    public void testPolling()
+            throws Exception
+    {
+        FileWatcher watcher = new FileWatcher( root ).setPolling( true )
+                .setPollInterval( 50, TimeUnit.MILLISECONDS ).setDebounce( 10, TimeUnit.MILLISECONDS );
+        watcher.addListener( listener );
+        watcher.start();
+        try
+        {
+            assertTrue( watcher.isPolling() );
+            assertChanges( false, new File( root, "sub" ), new File( root, "sub/file.txt" ) );
+
+            FileUtil.delete( new File( root, "sub/file.txt" ) );
+            FileChangeSet deleted = batches.poll( 10, TimeUnit.SECONDS );
+            assertNotNull( deleted );
+            assertTrue( deleted.getDeleted().contains( new File( root, "sub/file.txt" ) ) );
+        }
+        finally
+        {
+            watcher.close();
+        }
+    }
+
+    private void assertChanges( boolean rewrite, File dir, File file )
+            throws Exception
+    {
+        FileUtil.mkdir( dir );
+        FileUtil.writeToFile( "one", file );
+        if ( rewrite )
+        {
+            // a burst of writes is coalesced into the creation
+            FileUtil.writeToFile( "two", file );
+        }
+
+        Set<File> created = new HashSet<File>();
+        Set<File> modified = new HashSet<File>();
+        while ( !created.contains( file ) )
+        {
+            FileChangeSet changes = batches.poll( 10, TimeUnit.SECONDS );
+            assertNotNull( "Timed out waiting for " + file, changes );
+            created.addAll( changes.getCreated() );
+            modified.addAll( changes.getModified() );
+        }
+
+        assertTrue( created.contains( dir ) );
+        assertFalse( modified.contains( file ) );
+    }
+}
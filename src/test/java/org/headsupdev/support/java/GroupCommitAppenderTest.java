@@ -0,0 +1,226 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests for batching appends from many threads.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class GroupCommitAppenderTest
+    extends TestCase
+{
+    public void testConcurrentAppends()
+            throws Exception
+    {
+        File file = File.createTempFile( "appender", ".log" );
+        try
+        {
+            final GroupCommitAppender appender = new GroupCommitAppender( file, Charset.forName( "UTF-8" ) );
+            Thread[] threads = new Thread[8];
+            final IOException[] failure = new IOException[1];
+            for ( int i = 0; i < threads.length; i++ )
+            {
+                final int thread = i;
+                threads[i] = new Thread()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            for ( int j = 0; j < 200; j++ )
+                            {
+                                appender.appendLine( thread + "-" + j );
+                            }
+                        }
+                        catch ( IOException e )
+                        {
+                            failure[0] = e;
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            for ( Thread thread : threads )
+            {
+                thread.join();
+            }
+            appender.close();
+
+            assertNull( failure[0] );
+            String[] lines = FileUtil.toString( file ).split( "\n" );
+            assertEquals( 1600, lines.length );
+            Set<String> unique = new HashSet<String>();
+            for ( String line : lines )
+            {
+                unique.add( line );
+            }
+            assertEquals( 1600, unique.size() );
+        }
+        finally
+        {
+            FileUtil.delete( file );
+        }
+    }
+
+    public void testInterruptedAppendIsStillWritten()
+            throws Exception
+    {
+        File dir = FileUtil.createTempDir( "appender", "" );
+        try
+        {
+            // a pipe that nobody reads from yet holds the first writer until we have interrupted the second
+            final File fifo = new File( dir, "fifo" );
+            assertEquals( 0, ExecUtil.execute( Arrays.asList( "mkfifo", fifo.getPath() ) ) );
+            final CountDownLatch startReading = new CountDownLatch( 1 );
+            final ByteArrayOutputStream read = new ByteArrayOutputStream();
+            Thread reader = new Thread()
+            {
+                public void run()
+                {
+                    try ( FileInputStream in = new FileInputStream( fifo ) )
+                    {
+                        startReading.await();
+                        IOUtil.copyStream( in, read );
+                    }
+                    catch ( Exception e )
+                    {
+                        // checked by the content read
+                    }
+                }
+            };
+            reader.start();
+
+            final GroupCommitAppender appender = new GroupCommitAppender( fifo, Charset.forName( "UTF-8" ), false );
+            final char[] large = new char[1024 * 1024];
+            Arrays.fill( large, 'x' );
+            Thread writer = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        appender.append( new String( large ) );
+                    }
+                    catch ( IOException e )
+                    {
+                        // checked by the content read
+                    }
+                }
+            };
+            writer.start();
+            // let the writer fill the pipe and block
+            Thread.sleep( 100 );
+
+            final IOException[] failure = new IOException[1];
+            Thread waiter = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        appender.appendLine( "tail" );
+                    }
+                    catch ( IOException e )
+                    {
+                        failure[0] = e;
+                    }
+                }
+            };
+            waiter.start();
+            while ( waiter.getState() != Thread.State.WAITING )
+            {
+                Thread.sleep( 10 );
+            }
+            waiter.interrupt();
+            waiter.join();
+            assertTrue( failure[0] instanceof InterruptedIOException );
+
+            startReading.countDown();
+            writer.join();
+            Thread closer = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        appender.close();
+                    }
+                    catch ( IOException e )
+                    {
+                        failure[0] = e;
+                    }
+                }
+            };
+            closer.start();
+            closer.join( 10000 );
+            assertFalse( closer.isAlive() );
+            reader.join( 10000 );
+
+            String content = read.toString( "UTF-8" );
+            assertEquals( large.length + 5, content.length() );
+            assertTrue( content.endsWith( "xtail\n" ) );
+        }
+        finally
+        {
+            FileUtil.delete( dir );
+        }
+    }
+
+    public void testAppendAfterClose()
+            throws IOException
+    {
+        File file = File.createTempFile( "appender", ".log" );
+        try
+        {
+            GroupCommitAppender appender = new GroupCommitAppender( file, Charset.forName( "UTF-8" ), false );
+            appender.append( "one" );
+            appender.close();
+
+            try
+            {
+                appender.append( "two" );
+                fail();
+            }
+            catch ( IOException e )
+            {
+                // expected
+            }
+            assertEquals( "one\n", FileUtil.toString( file ) );
+        }
+        finally
+        {
+            FileUtil.delete( file );
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tests for the IOUtil class
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class IOUtilTest
+    extends TestCase
+{
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    public void testForEachLine()
+            throws IOException
+    {
+        final List<String> lines = new ArrayList<String>();
+        IOUtil.forEachLine( new ByteArrayInputStream( "one\ntwo\r\nthree\rfour".getBytes( UTF8 ) ), UTF8,
+                new LineHandler()
+                {
+                    public void handleLine( CharSequence line )
+                    {
+                        lines.add( line.toString() );
+                    }
+                } );
+
+        assertEquals( Arrays.asList( "one", "two", "three", "four" ), lines );
+    }
+
+    public void testForEachLineKeepsEmptyLines()
+            throws IOException
+    {
+        final List<String> lines = new ArrayList<String>();
+        IOUtil.forEachLine( new StringReader( "\n\na\n" ), new LineHandler()
+        {
+            public void handleLine( CharSequence line )
+            {
+                lines.add( line.toString() );
+            }
+        } );
+
+        assertEquals( Arrays.asList( "", "", "a" ), lines );
+    }
+
+    public void testForEachLineLongLines()
+            throws IOException
+    {
+        StringBuilder longLine = new StringBuilder();
+        for ( int i = 0; i < 20000; i++ )
+        {
+            longLine.append( (char) ( 'a' + i % 26 ) );
+        }
+
+        final List<String> lines = new ArrayList<String>();
+        IOUtil.forEachLine( new StringReader( longLine + "\r\n" + longLine ), new LineHandler()
+        {
+            public void handleLine( CharSequence line )
+            {
+                lines.add( line.toString() );
+            }
+        } );
+
+        assertEquals( Arrays.asList( longLine.toString(), longLine.toString() ), lines );
+    }
+
+    public void testLines()
+    {
+        Stream<CharSequence> lines = IOUtil.lines( new ByteArrayInputStream( "a\nbb\nccc\n".getBytes( UTF8 ) ), UTF8 );
+        try
+        {
+            List<String> collected = lines.map( CharSequence::toString ).collect( Collectors.<String>toList() );
+            assertEquals( Arrays.asList( "a", "bb", "ccc" ), collected );
+        }
+        finally
+        {
+            lines.close();
+        }
+    }
+
+    public void testLinesIsLazy()
+    {
+        Stream<CharSequence> lines = IOUtil.lines( new StringReader( "first\nsecond\nthird" ) );
+        try
+        {
+            assertEquals( "first", lines.findFirst().get().toString() );
+        }
+        finally
+        {
+            lines.close();
+        }
+    }
+
+    public void testCloseAllClosesInReverseOrder()
+            throws IOException
+    {
+        final List<String> closed = new ArrayList<String>();
+        IOUtil.closeAll( new NamedCloseable( "first", closed ), null, new NamedCloseable( "second", closed ) );
+
+        assertEquals( Arrays.asList( "second", "first" ), closed );
+    }
+
+    public void testCloseAllSuppressesLaterFailures()
+    {
+        final List<String> closed = new ArrayList<String>();
+        try
+        {
+            IOUtil.closeAll( new FailingCloseable( "early" ), new NamedCloseable( "middle", closed ),
+                    new FailingCloseable( "late" ) );
+        }
+        catch ( IOException e )
+        {
+            assertEquals( "late", e.getMessage() );
+            assertEquals( 1, e.getSuppressed().length );
+            assertEquals( "early", e.getSuppressed()[0].getMessage() );
+            assertEquals( Arrays.asList( "middle" ), closed );
+            return;
+        }
+
+        fail();
+    }
+
+    public void testQuietCloseCountsFailures()
+    {
+        IOUtil.resetCloseFailures();
+        OutputStream out = new OutputStream()
+        {
+            public void write( int b )
+            {
+            }
+
+            public void close()
+                    throws IOException
+            {
+                throw new IOException( "flush failed" );
+            }
+        };
+
+        IOUtil.close( out );
+        IOUtil.close( out );
+
+        assertEquals( Long.valueOf( 2 ), IOUtil.getCloseFailures().get( out.getClass().getName() ) );
+        IOUtil.resetCloseFailures();
+        assertTrue( IOUtil.getCloseFailures().isEmpty() );
+    }
+
+    private static byte[] compressibleBytes( int length )
+    {
+        byte[] data = new byte[length];
+        Random random = new Random( 7 );
+        for ( int i = 0; i < length; i++ )
+        {
+            data[i] = (byte) ( 'a' + random.nextInt( 4 ) );
+        }
+
+        return data;
+    }
+
+    public void testCompressionRoundTrip()
+            throws IOException
+    {
+        byte[] data = compressibleBytes( 50000 );
+        for ( Compression compression : Compression.values() )
+        {
+            final AtomicBoolean closed = new AtomicBoolean();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream()
+            {
+                public void close()
+                {
+                    closed.set( true );
+                }
+            };
+            IOUtil.compressStream( new ByteArrayInputStream( data ), compressed, compression );
+            assertFalse( compression.name(), closed.get() );
+
+            byte[] header = compressed.toByteArray();
+            assertEquals( compression, Compression.detect( header, header.length ) );
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IOUtil.decompressStream( new ByteArrayInputStream( compressed.toByteArray() ), out );
+            assertTrue( compression.name(), Arrays.equals( data, out.toByteArray() ) );
+        }
+    }
+
+    public void testDecompressPassesTextThrough()
+            throws IOException
+    {
+        // each of these starts with bytes that pass a zlib header check
+        for ( String text : Arrays.asList( "80,100\n", "(run)\n", "hb\n", "x^y\n" ) )
+        {
+            byte[] data = text.getBytes( "UTF-8" );
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IOUtil.decompressStream( new ByteArrayInputStream( data ), out );
+
+            assertEquals( text, out.toString( "UTF-8" ) );
+        }
+    }
+
+    public void testDecompressEmptyStream()
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtil.decompressStream( new ByteArrayInputStream( new byte[0] ), out );
+
+        assertEquals( 0, out.size() );
+    }
+
+    public void testParallelGzip()
+            throws IOException
+    {
+        byte[] data = compressibleBytes( 1000000 );
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        long read = new ParallelGzip( 4, 16 * 1024, 6 ).compress( new ByteArrayInputStream( data ), compressed );
+        assertEquals( data.length, read );
+        assertTrue( compressed.size() < data.length / 2 );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtil.copyStream( new GZIPInputStream( new ByteArrayInputStream( compressed.toByteArray() ) ), out );
+        assertTrue( Arrays.equals( data, out.toByteArray() ) );
+    }
+
+    public void testParallelGzipEmptyInput()
+            throws IOException
+    {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        IOUtil.compressStreamParallel( new ByteArrayInputStream( new byte[0] ), compressed );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtil.decompressStream( new ByteArrayInputStream( compressed.toByteArray() ), out );
+        assertEquals( 0, out.size() );
+    }
+
+    static class NamedCloseable
+        implements Closeable
+    {
+        private String name;
+        private List<String> closed;
+
+        NamedCloseable( String name, List<String> closed )
+        {
+            this.name = name;
+            this.closed = closed;
+        }
+
+        public void close()
+        {
+            closed.add( name );
+        }
+    }
+
+    static class FailingCloseable
+        implements Closeable
+    {
+        private String message;
+
+        FailingCloseable( String message )
+        {
+            this.message = message;
+        }
+
+        public void close()
+                throws IOException
+        {
+            throw new IOException( message );
+        }
+    }
+
+    public void testWriterOutputStreamJoinsSplitCharacters()
+            throws IOException
+    {
+        byte[] bytes = "caf\u00e9 \u20ac\r\n".getBytes( "UTF-8" );
+        StringWriter writer = new StringWriter();
+        WriterOutputStream out = new WriterOutputStream( writer, Charset.forName( "UTF-8" ) );
+        for ( byte b : bytes )
+        {
+            out.write( b );
+        }
+        out.finish();
+
+        assertEquals( "caf\u00e9 \u20ac\r\n", writer.toString() );
+    }
+}
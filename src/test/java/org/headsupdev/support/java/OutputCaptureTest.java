@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Tests for the bounded output capture.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class OutputCaptureTest
+    extends TestCase
+{
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    public void testShortOutputIsKept()
+            throws IOException
+    {
+        OutputCapture capture = new OutputCapture( 4, 4 );
+        capture.write( "abcdef".getBytes( UTF8 ) );
+
+        assertFalse( capture.isTruncated() );
+        assertEquals( "abcdef", capture.toString( UTF8 ) );
+        assertEquals( "cdef", new String( capture.getTail(), UTF8 ) );
+    }
+
+    public void testHeadAndTail()
+            throws IOException
+    {
+        OutputCapture capture = new OutputCapture( 3, 5 );
+        for ( char c = 'a'; c <= 'z'; c++ )
+        {
+            capture.write( c );
+        }
+
+        assertTrue( capture.isTruncated() );
+        assertEquals( 26, capture.getByteCount() );
+        assertEquals( "abc", new String( capture.getHead(), UTF8 ) );
+        assertEquals( "vwxyz", new String( capture.getTail(), UTF8 ) );
+        assertEquals( "abc\n... 18 bytes omitted ...\nvwxyz", capture.toString( UTF8 ) );
+
+        try
+        {
+            capture.openFullOutput();
+            fail( "Full output should not have been kept" );
+        }
+        catch ( IOException e )
+        {
+            // expected
+        }
+    }
+
+    public void testSpillToDisk()
+            throws IOException
+    {
+        OutputCapture capture = new OutputCapture( 16, 16 ).setSpillThreshold( 1000, null );
+        try
+        {
+            int ret = ExecUtil.executeToStreams( Arrays.asList( "seq", "10000" ), null, capture, null );
+            assertEquals( 0, ret );
+            capture.close();
+
+            assertTrue( capture.isSpilled() );
+            assertEquals( "1\n2\n3\n4\n5\n6\n7\n8\n", new String( capture.getHead(), UTF8 ) );
+            assertTrue( new String( capture.getTail(), UTF8 ).endsWith( "9999\n10000\n" ) );
+
+            InputStream full = capture.openFullOutput();
+            try
+            {
+                String all = IOUtil.toString( full );
+                assertEquals( 10000, all.split( "\n" ).length );
+                assertEquals( capture.getByteCount(), all.length() );
+            }
+            finally
+            {
+                IOUtil.close( full );
+            }
+        }
+        finally
+        {
+            capture.discard();
+        }
+        assertFalse( capture.isSpilled() );
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the path index.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class PathIndexTest
+    extends TestCase
+{
+    private File first, second;
+
+    protected void setUp()
+            throws Exception
+    {
+        first = FileUtil.createTempDir( "pathindex", "" );
+        second = FileUtil.createTempDir( "pathindex", "" );
+    }
+
+    protected void tearDown()
+            throws Exception
+    {
+        FileUtil.delete( first );
+        FileUtil.delete( second );
+    }
+
+    public void testFirstDirectoryWins()
+            throws IOException
+    {
+        FileUtil.writeToFile( "", new File( first, "tool" ) );
+        FileUtil.writeToFile( "", new File( second, "tool" ) );
+        FileUtil.writeToFile( "", new File( second, "other" ) );
+
+        PathIndex index = new PathIndex( first.getPath() + File.pathSeparator + second.getPath() );
+        assertEquals( new File( first, "tool" ), index.lookup( "tool" ) );
+        assertEquals( new File( second, "other" ), index.lookup( "other" ) );
+        assertNull( index.lookup( "missing" ) );
+    }
+
+    public void testModifiedDirectoryIsReindexed()
+            throws IOException
+    {
+        PathIndex index = new PathIndex( first.getPath() ).setCheckInterval( 0, TimeUnit.MILLISECONDS );
+        assertNull( index.lookup( "tool" ) );
+
+        FileUtil.writeToFile( "", new File( first, "tool" ) );
+        // make sure the change is visible on file systems with coarse timestamps
+        assertTrue( first.setLastModified( first.lastModified() + 2000 ) );
+
+        assertEquals( new File( first, "tool" ), index.lookup( "tool" ) );
+    }
+
+    public void testLookupAll()
+            throws IOException
+    {
+        FileUtil.writeToFile( "", new File( first, "a" ) );
+        PathIndex index = new PathIndex( first.getPath() );
+
+        Map<String, File> found = index.lookupAll( Arrays.asList( "a", "b" ) );
+        assertEquals( new File( first, "a" ), found.get( "a" ) );
+        assertTrue( found.containsKey( "b" ) );
+        assertNull( found.get( "b" ) );
+    }
+}
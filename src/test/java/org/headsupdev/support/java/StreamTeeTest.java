@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Tests for copying a stream to many outputs.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class StreamTeeTest
+    extends TestCase
+{
+    private static byte[] randomBytes( int length )
+    {
+        byte[] data = new byte[length];
+        new Random( 42 ).nextBytes( data );
+        return data;
+    }
+
+    public void testTeeStream()
+            throws IOException
+    {
+        byte[] data = randomBytes( 100000 );
+        ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+        ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+
+        long copied = IOUtil.teeStream( new ByteArrayInputStream( data ), out1, out2 );
+
+        assertEquals( data.length, copied );
+        assertTrue( Arrays.equals( data, out1.toByteArray() ) );
+        assertTrue( Arrays.equals( data, out2.toByteArray() ) );
+    }
+
+    public void testChecksumsAndChannels()
+            throws IOException, NoSuchAlgorithmException
+    {
+        byte[] data = randomBytes( 300000 );
+        ByteArrayOutputStream channelOut = new ByteArrayOutputStream();
+        CRC32 crc = new CRC32();
+        MessageDigest digest = MessageDigest.getInstance( "SHA-256" );
+
+        new StreamTee( 1024 ).addOutput( Channels.newChannel( channelOut ) ).addChecksum( crc ).addDigest( digest )
+                .copy( new ByteArrayInputStream( data ) );
+
+        CRC32 expectedCrc = new CRC32();
+        expectedCrc.update( data, 0, data.length );
+        assertEquals( expectedCrc.getValue(), crc.getValue() );
+        assertTrue( Arrays.equals( MessageDigest.getInstance( "SHA-256" ).digest( data ), digest.digest() ) );
+        assertTrue( Arrays.equals( data, channelOut.toByteArray() ) );
+    }
+
+    public void testAsyncOutput()
+            throws IOException
+    {
+        byte[] data = randomBytes( 1000000 );
+        ByteArrayOutputStream fast = new ByteArrayOutputStream();
+        final ByteArrayOutputStream slow = new ByteArrayOutputStream();
+        OutputStream slowOut = new OutputStream()
+        {
+            public void write( int b )
+            {
+                slow.write( b );
+            }
+
+            public void write( byte[] b, int off, int len )
+            {
+                Thread.yield();
+                slow.write( b, off, len );
+            }
+        };
+
+        long copied = new StreamTee( 4096 ).addOutput( fast ).addAsyncOutput( slowOut, 4 )
+                .copy( new ByteArrayInputStream( data ) );
+
+        assertEquals( data.length, copied );
+        assertTrue( Arrays.equals( data, fast.toByteArray() ) );
+        assertTrue( Arrays.equals( data, slow.toByteArray() ) );
+    }
+
+    public void testAsyncOutputFailureIsReported()
+    {
+        OutputStream failing = new OutputStream()
+        {
+            public void write( int b )
+                    throws IOException
+            {
+                throw new IOException( "disk full" );
+            }
+        };
+
+        try
+        {
+            new StreamTee( 16 ).addAsyncOutput( failing, 2 ).copy( new ByteArrayInputStream( randomBytes( 1000 ) ) );
+        }
+        catch ( IOException e )
+        {
+            assertEquals( "disk full", e.getMessage() );
+            return;
+        }
+
+        fail();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026 Heads Up Development Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.headsupdev.support.java;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the temp dir manager.
+ *
+ * Created: 19/10/2026
+ *
+ * @author Andrew Williams
+ * @since 1.9
+ */
+public class TempDirManagerTest
+    extends TestCase
+{
+    private File base;
+
+    protected void setUp()
+            throws Exception
+    {
+        base = FileUtil.createTempDir( "tempdirs", "" );
+    }
+
+    protected void tearDown()
+            throws Exception
+    {
+        FileUtil.delete( base );
+    }
+
+    public void testScratchDirsAreEmptiedAndReused()
+            throws Exception
+    {
+        TempDirManager manager = new TempDirManager( base );
+        try
+        {
+            File first;
+            try ( TempDirManager.ScratchDir scratch = manager.create() )
+            {
+                first = scratch.getDirectory();
+                assertTrue( first.isDirectory() );
+                FileUtil.mkdir( new File( first, "sub" ) );
+                FileUtil.writeToFile( "data", new File( first, "sub/file.txt" ) );
+                assertEquals( 1, manager.getActiveCount() );
+            }
+            assertEquals( 0, manager.getActiveCount() );
+            assertTrue( manager.awaitCleanup( 10, TimeUnit.SECONDS ) );
+
+            try ( TempDirManager.ScratchDir scratch = manager.create() )
+            {
+                assertEquals( first, scratch.getDirectory() );
+                assertEquals( 0, scratch.getDirectory().list().length );
+                assertEquals( 1, manager.getReusedCount() );
+            }
+        }
+        finally
+        {
+            manager.close();
+        }
+        assertFalse( manager.getSessionDirectory().exists() );
+    }
+
+    public void testOrphanedSessionsAreRemoved()
+            throws Exception
+    {
+        File orphan = new File( base, "session-orphan" );
+        FileUtil.mkdir( orphan );
+        FileUtil.writeToFile( "", new File( orphan, ".lock" ) );
+        FileUtil.writeToFile( "left behind", new File( orphan, "file.txt" ) );
+
+        TempDirManager live = new TempDirManager( base );
+        TempDirManager manager = new TempDirManager( base );
+        try
+        {
+            // only one manager in the JVM removes a given orphan, so wait for both sweeps
+            assertTrue( live.awaitCleanup( 10, TimeUnit.SECONDS ) );
+            assertTrue( manager.awaitCleanup( 10, TimeUnit.SECONDS ) );
+            assertFalse( orphan.exists() );
+            assertTrue( live.getSessionDirectory().exists() );
+        }
+        finally
+        {
+            manager.close();
+            live.close();
+        }
+    }
+
+    public void testSweepKeepsLocksOfThisJvm()
+            throws Exception
+    {
+        TempDirManager first = new TempDirManager( base );
+        TempDirManager second = null;
+        try
+        {
+            second = new TempDirManager( base );
+            assertTrue( second.awaitCleanup( 10, TimeUnit.SECONDS ) );
+            assertTrue( first.getSessionDirectory().isDirectory() );
+
+            // only another process can see whether the first session is still locked
+            File lock = new File( first.getSessionDirectory(), ".lock" );
+            String java = new File( System.getProperty( "java.home" ), "bin/java" ).getPath();
+            int ret = ExecUtil.execute( Arrays.asList( java, "-cp", System.getProperty( "java.class.path" ),
+                    LockProbe.class.getName(), lock.getPath() ) );
+            assertEquals( 1, ret );
+        }
+        finally
+        {
+            first.close();
+            if ( second != null )
+            {
+                second.close();
+            }
+        }
+    }
+
+    public void testSweepSkipsSessionsLockedInThisJvm()
+            throws Exception
+    {
+        File locked = new File( base, "session-locked" );
+        FileUtil.mkdir( locked );
+        FileUtil.writeToFile( "", new File( locked, ".lock" ) );
+        for ( int i = 0; i < 5; i++ )
+        {
+            File orphan = new File( base, "session-orphan" + i );
+            FileUtil.mkdir( orphan );
+            FileUtil.writeToFile( "", new File( orphan, ".lock" ) );
+        }
+
+        // stands in for another manager in this JVM that is checking the same session
+        try ( FileChannel channel = FileChannel.open( new File( locked, ".lock" ).toPath(),
+                StandardOpenOption.WRITE ) )
+        {
+            channel.lock();
+            TempDirManager manager = new TempDirManager( base );
+            try
+            {
+                assertTrue( manager.awaitCleanup( 10, TimeUnit.SECONDS ) );
+                assertTrue( locked.exists() );
+                assertEquals( 5, manager.getOrphansRemovedCount() );
+            }
+            finally
+            {
+                manager.close();
+            }
+        }
+    }
+
+    /**
+     * Exits with 0 if the file passed could be locked, or 1 if it is locked by another process.
+     */
+    public static class LockProbe
+    {
+        public static void main( String[] args )
+                throws Exception
+        {
+            try ( FileChannel channel = FileChannel.open( new File( args[0] ).toPath(), StandardOpenOption.WRITE ) )
+            {
+                System.exit( channel.tryLock() == null ? 1 : 0 );
+            }
+        }
+    }
+}